@@ -0,0 +1,37 @@
+/**
+ * An allocation request waiting for memory to be freed.
+ */
+public class AllocationRequest {
+    private int pid, size;
+    // The order the request was made in
+    private long sequence;
+
+    /**
+     * Records a waiting allocation request
+     * @param pid The process ID
+     * @param size The number of bytes requested
+     * @param sequence The order the request was made in
+     */
+    public AllocationRequest(int pid, int size, long sequence) {
+        this.pid = pid;
+        this.size = size;
+        this.sequence = sequence;
+    }
+
+    public int getPid() {
+        return this.pid;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    @Override
+    public String toString() {
+        return "PID " + pid + ": " + size + " bytes";
+    }
+}
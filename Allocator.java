@@ -0,0 +1,71 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A memory allocation engine, giving blocks of simulated memory to processes.
+ * Main picks the engine at startup; every engine uses PID 0 for free memory.
+ */
+public interface Allocator {
+    /**
+     * Allocate memory to a process
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @return True if the memory was allocated; False, otherwise
+     * @throws InterruptedException
+     */
+    public boolean allocate(int pid, int size) throws InterruptedException;
+
+    /**
+     * Release memory held by a process
+     * @param pid The process ID
+     * @throws InterruptedException
+     */
+    public void free(int pid) throws InterruptedException;
+
+    /**
+     * Release memory held by a process that keeps running, i.e. to start its working set over
+     * Unlike free, it isn't displayed as the process terminating
+     * @param pid The process ID
+     * @throws InterruptedException
+     */
+    public void release(int pid) throws InterruptedException;
+
+    /**
+     * Check if a process has memory allocated to it
+     * @param pid The process ID
+     * @return True if a process has allocated memory; False, otherwise
+     */
+    public boolean hasAllocation(int pid);
+
+    /**
+     * Get the memory held by every process, without walking their blocks
+     * @return A snapshot of each PID's usage
+     */
+    public Map<Integer, Usage> getUsage();
+
+    /**
+     * Get the process owning a byte of memory
+     * @param address The byte index
+     * @return The process ID (0 == free)
+     * @throws InterruptedException
+     */
+    public int getOwner(int address) throws InterruptedException;
+
+    /**
+     * Get the number of bytes of memory
+     * @return The memory size
+     */
+    public int getSize();
+
+    /**
+     * Get the runs of bytes with the same owner, covering all of memory in address order
+     * @return The layout, with free memory as PID 0
+     * @throws InterruptedException
+     */
+    public List<Segment> getSegments() throws InterruptedException;
+
+    /**
+     * Display the current memory layout
+     */
+    public void printMemory();
+}
@@ -0,0 +1,386 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmarks the memory manager, the locks and the scheduler. Each benchmark runs some
+ * warmup iterations (so the JIT has compiled it) and then measured iterations, and
+ * reports the mean, min and max throughput, optionally written to a JSON file.
+ *
+ *   alloc:     allocate/free churn on a fragmented heap, for each heap size
+ *   semaphore: threads acquiring and releasing random locks, with the simple Semaphore2,
+ *              the queued Semaphore2 (unfair and fair), and java.util.concurrent.Semaphore
+ *   schedule:  scheduling processes with simulated time, for each policy
+ *
+ * Options are key=value pairs; lists are separated by commas, i.e.
+ * "java Benchmark suite=alloc,schedule heaps=4096,65536 sizes=exp:32 out=results.json"
+ *
+ * The same benchmarks are written for JMH in benchmarks/ (see pom.xml), which handles
+ * forking, dead-code elimination and error bars properly. This class is the fallback for
+ * when only a JDK is available, as it needs nothing but "javac *.java".
+ */
+public class Benchmark {
+    // The options, with their defaults
+    private static Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("suite", "alloc,semaphore,schedule");
+        DEFAULTS.put("warmup", "2");
+        DEFAULTS.put("iterations", "5");
+        DEFAULTS.put("seed", "1");
+        DEFAULTS.put("out", "");
+        // alloc: heap sizes, allocation sizes (any WorkloadGenerator distribution),
+        // processes, operations per iteration, placement strategy and arenas
+        DEFAULTS.put("heaps", "4096,65536,1048576");
+        DEFAULTS.put("sizes", "uniform:1:64");
+        DEFAULTS.put("pids", "256");
+        DEFAULTS.put("ops", "200000");
+        DEFAULTS.put("fit", "first_fit");
+        DEFAULTS.put("arenas", "1");
+        // semaphore: thread counts, locks, and acquire/release pairs per thread
+        DEFAULTS.put("threads", "1,4,16");
+        DEFAULTS.put("locks", "16");
+        DEFAULTS.put("lockops", "50000");
+        // schedule: policies, processes, cores, quantum and the longest CPU time
+        DEFAULTS.put("policies", "round_robin,srtf,mlfq");
+        DEFAULTS.put("processes", "10000");
+        DEFAULTS.put("cores", "1");
+        DEFAULTS.put("quantum", "50");
+        DEFAULTS.put("burst", "500");
+    }
+
+    // The options in use
+    private static Map<String, String> options = new HashMap<>();
+    // The results so far, as JSON objects
+    private static ArrayList<String> results = new ArrayList<>();
+
+    /**
+     * Acquires and releases one lock
+     */
+    private static interface Lock {
+        public void acquire(int number) throws InterruptedException;
+
+        public void release(int number);
+    }
+
+    /**
+     * One measured run, returning the number of operations it did
+     */
+    private static interface Run {
+        public long run() throws InterruptedException;
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        options.putAll(DEFAULTS);
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+
+            // Check the input
+            if (!DEFAULTS.containsKey(pair[0])) {
+                System.out.println("Unknown option: " + pair[0] + " (options: " + DEFAULTS.keySet() + ")");
+                return;
+            }
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+
+        // The managers' messages would be measured too
+        Log.setEnabled(false);
+
+        for (String suite : list("suite")) {
+            switch (suite) {
+                case ("alloc"):
+                    allocSuite();
+                    break;
+                case ("semaphore"):
+                    semaphoreSuite();
+                    break;
+                case ("schedule"):
+                    scheduleSuite();
+                    break;
+                default:
+                    System.out.println("Unknown suite: " + suite);
+            }
+        }
+
+        // Write every result as a JSON array
+        if (!options.get("out").isEmpty()) {
+            Files.write(Paths.get(options.get("out")), ("[\n" + String.join(",\n", results) + "\n]\n").getBytes(StandardCharsets.UTF_8));
+            System.out.println("Wrote " + results.size() + " results to " + options.get("out"));
+        }
+    }
+
+    /**
+     * Allocate and free memory at random, for each heap size
+     * Each operation frees a random process if it holds memory, and allocates to it otherwise,
+     * so the heap stays about half full and fragmented
+     * @throws InterruptedException
+     */
+    private static void allocSuite() throws InterruptedException {
+        int pids = number("pids");
+        int ops = number("ops");
+        int arenas = number("arenas");
+        MemoryManager.Fit fit = MemoryManager.Fit.valueOf(options.get("fit").toUpperCase());
+        String[] sizes = options.get("sizes").split(":");
+
+        for (String heap : list("heaps")) {
+            int bytes = Integer.parseInt(heap);
+            Random random = new Random(number("seed"));
+            MemoryManager memory = new MemoryManager(bytes, fit, MemoryManager.Layout.INTERVAL, arenas);
+
+            LinkedHashMap<String, String> params = new LinkedHashMap<>();
+            params.put("heap", heap);
+            params.put("sizes", options.get("sizes"));
+            params.put("pids", Integer.toString(pids));
+            params.put("fit", fit.toString().toLowerCase());
+            params.put("arenas", Integer.toString(arenas));
+
+            measure("alloc", params, "ops/s", () -> {
+                for (int i=0; i<ops; i++) {
+                    int pid = 1 + random.nextInt(pids);
+
+                    if (memory.hasAllocation(pid)) {
+                        memory.free(pid);
+                    }
+                    else {
+                        memory.allocate(pid, WorkloadGenerator.sample(random, sizes));
+                    }
+                }
+                return ops;
+            });
+
+            System.out.println("  fragmentation: " + String.format("%.3f", memory.getFragmentation()));
+        }
+    }
+
+    /**
+     * Acquire and release random locks from several threads, for each thread count and lock
+     * @throws InterruptedException
+     */
+    private static void semaphoreSuite() throws InterruptedException {
+        int locks = number("locks");
+        int ops = number("lockops");
+
+        Semaphore2 simple = new Semaphore2(locks);
+        Semaphore2 queued = new Semaphore2(locks, 1, false);
+        Semaphore2 fair = new Semaphore2(locks, 1, true);
+        Semaphore[] standard = new Semaphore[locks];
+        for (int i=0; i<locks; i++) {
+            standard[i] = new Semaphore(1);
+        }
+
+        LinkedHashMap<String, Lock> implementations = new LinkedHashMap<>();
+        implementations.put("simple", new Lock() {
+            public void acquire(int number) throws InterruptedException {
+                simple.waitSem(number);
+            }
+
+            public void release(int number) {
+                simple.signal(number);
+            }
+        });
+        implementations.put("queued", new Lock() {
+            public void acquire(int number) throws InterruptedException {
+                queued.waitSem(number);
+            }
+
+            public void release(int number) {
+                queued.signal(number);
+            }
+        });
+        implementations.put("queued-fair", new Lock() {
+            public void acquire(int number) throws InterruptedException {
+                fair.waitSem(number);
+            }
+
+            public void release(int number) {
+                fair.signal(number);
+            }
+        });
+        implementations.put("j.u.c.Semaphore", new Lock() {
+            public void acquire(int number) throws InterruptedException {
+                standard[number].acquire();
+            }
+
+            public void release(int number) {
+                standard[number].release();
+            }
+        });
+
+        for (String count : list("threads")) {
+            int threads = Integer.parseInt(count);
+
+            for (Map.Entry<String, Lock> entry : implementations.entrySet()) {
+                LinkedHashMap<String, String> params = new LinkedHashMap<>();
+                params.put("lock", entry.getKey());
+                params.put("threads", count);
+                params.put("locks", Integer.toString(locks));
+
+                measure("semaphore", params, "ops/s", () -> contend(threads, locks, ops, entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Run threads acquiring and releasing random locks
+     * @param threads The number of threads
+     * @param locks The number of locks
+     * @param ops The acquire/release pairs per thread
+     * @param lock The lock implementation
+     * @return The total acquire/release pairs
+     * @throws InterruptedException
+     */
+    private static long contend(int threads, int locks, int ops, Lock lock) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+
+        for (int i=0; i<threads; i++) {
+            workers[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                try {
+                    for (int j=0; j<ops; j++) {
+                        int number = random.nextInt(locks);
+                        lock.acquire(number);
+                        lock.release(number);
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        return (long) threads * ops;
+    }
+
+    /**
+     * Schedule processes with random CPU times and arrivals, for each policy
+     * @throws InterruptedException
+     */
+    private static void scheduleSuite() throws InterruptedException {
+        int processes = number("processes");
+        int cores = number("cores");
+        int quantum = number("quantum");
+        int burst = number("burst");
+
+        for (String name : list("policies")) {
+            ProcessManager.Policy policy = ProcessManager.Policy.valueOf(name.toUpperCase());
+
+            LinkedHashMap<String, String> params = new LinkedHashMap<>();
+            params.put("policy", name);
+            params.put("processes", Integer.toString(processes));
+            params.put("cores", Integer.toString(cores));
+            params.put("quantum", Integer.toString(quantum));
+
+            measure("schedule", params, "processes/s", () -> {
+                Random random = new Random(number("seed"));
+                ProcessManager processMgr = new ProcessManager();
+                processMgr.setSimulated(true);
+                processMgr.setPolicy(policy, quantum);
+                processMgr.setCores(cores);
+
+                // Arrivals spread over about the time it takes to run them all
+                long span = (long) processes * burst / 2 / cores;
+                for (int i=0; i<processes; i++) {
+                    processMgr.createProcess("p", random.nextInt(5), 1 + random.nextInt(burst), (long) (random.nextDouble() * span));
+                }
+
+                processMgr.schedule();
+                return processes;
+            });
+        }
+    }
+
+    /**
+     * Run warmup and measured iterations, display the throughput, and record it as JSON
+     * @param benchmark The benchmark name
+     * @param params The workload parameters
+     * @param unit The throughput unit
+     * @param run One iteration
+     * @throws InterruptedException
+     */
+    private static void measure(String benchmark, Map<String, String> params, String unit, Run run) throws InterruptedException {
+        int warmup = number("warmup");
+        int iterations = number("iterations");
+
+        for (int i=0; i<warmup; i++) {
+            run.run();
+        }
+
+        double[] scores = new double[iterations];
+        for (int i=0; i<iterations; i++) {
+            long start = System.nanoTime();
+            long ops = run.run();
+            scores[i] = ops * 1e9 / Math.max(1, System.nanoTime() - start);
+        }
+
+        // The mean, min and max throughput
+        double sum = 0, min = Double.MAX_VALUE, max = 0;
+        for (double score : scores) {
+            sum += score;
+            min = Math.min(min, score);
+            max = Math.max(max, score);
+        }
+        double mean = sum / Math.max(1, iterations);
+
+        System.out.println(benchmark + " " + params + ": " + String.format("%.0f", mean) + " " + unit
+                + " (min " + String.format("%.0f", min) + ", max " + String.format("%.0f", max) + ")");
+
+        // Record the result
+        StringBuilder json = new StringBuilder("  {\"benchmark\": \"" + benchmark + "\", \"params\": {");
+        String separator = "";
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            json.append(separator).append('"').append(param.getKey()).append("\": \"").append(param.getValue()).append('"');
+            separator = ", ";
+        }
+        json.append("}, \"unit\": \"").append(unit).append("\", \"score\": ").append(decimal(mean))
+                .append(", \"min\": ").append(decimal(min)).append(", \"max\": ").append(decimal(max))
+                .append(", \"iterations\": [");
+        for (int i=0; i<iterations; i++) {
+            json.append(i == 0 ? "" : ", ").append(decimal(scores[i]));
+        }
+        json.append("]}");
+        results.add(json.toString());
+    }
+
+    /**
+     * Format a number for JSON, with a '.' whatever the locale
+     * @param value The number
+     * @return The number, to one decimal place
+     */
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    /**
+     * Get a whole number option
+     * @param key The option
+     * @return The value
+     */
+    private static int number(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+    /**
+     * Get a comma separated option
+     * @param key The option
+     * @return The values
+     */
+    private static String[] list(String key) {
+        return options.get(key).split(",");
+    }
+}
@@ -0,0 +1,356 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocates memory with the buddy system. Every block is a power of two in size, and
+ * is split in half, or merged with its buddy (the other half), one order at a time.
+ * The free blocks of each order are kept in a bitmap, indexed by (start >> order), so
+ * splitting and merging never needs to sort or search a list of blocks.
+ *
+ * Memory that isn't a power of two in size starts out as several top-level blocks,
+ * i.e. 100 bytes = (0, 64), (64, 96), (96, 100)
+ */
+public class BuddyAllocator implements Allocator {
+    // The number of bytes of memory
+    private int size;
+    // The owner of each byte of simulated memory
+    private OwnerMap memory;
+    // The free blocks of each order (size 2^order), by (start >> order)
+    private BitSet[] free;
+    // The number of free blocks of each order
+    private int[] freeCount;
+    // The blocks held by each process
+    private HashMap<Integer, ArrayList<Block>> table;
+    // The bytes and blocks held by each process
+    private HashMap<Integer, Usage> usage;
+    private Semaphore2 semaphore = new Semaphore2();
+
+    public BuddyAllocator(int maxBytes) {
+        this(maxBytes, MemoryManager.Layout.INTERVAL);
+    }
+
+    /**
+     * Creates a buddy allocator using a given memory layout
+     * @param maxBytes The number of bytes of memory
+     * @param layout The byte ownership representation
+     */
+    public BuddyAllocator(int maxBytes, MemoryManager.Layout layout) {
+        this.size = maxBytes;
+        this.memory = (layout == MemoryManager.Layout.DENSE) ? new DenseOwnerMap(maxBytes) : new IntervalOwnerMap(maxBytes);
+        this.table = new HashMap<>();
+        this.usage = new HashMap<>();
+
+        // The largest order fitting in memory
+        int orders = 32 - Integer.numberOfLeadingZeros(Math.max(1, maxBytes));
+        free = new BitSet[orders];
+        freeCount = new int[orders];
+
+        for (int i=0; i<orders; i++) {
+            free[i] = new BitSet();
+        }
+
+        // Split memory into top-level blocks, from largest to smallest
+        int start = 0;
+        for (int order=orders - 1; order>=0; order--) {
+            if ((maxBytes & (1 << order)) != 0) {
+                markFree(start, order);
+                start += 1 << order;
+            }
+        }
+    }
+
+    /**
+     * Get the smallest order holding a number of bytes
+     * @param size The number of bytes
+     * @return The order, i.e. 5 bytes -> order 3 (8 bytes)
+     */
+    private static int orderOf(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Mark a block as free
+     * @param start The block start
+     * @param order The block order
+     */
+    private void markFree(int start, int order) {
+        free[order].set(start >> order);
+        freeCount[order] += 1;
+    }
+
+    /**
+     * Take a block out of the free bitmaps, if it is free
+     * @param start The block start
+     * @param order The block order
+     * @return True if the block was free; False, otherwise
+     */
+    private boolean takeFree(int start, int order) {
+        // The block isn't free
+        if (!free[order].get(start >> order)) {
+            return false;
+        }
+
+        free[order].clear(start >> order);
+        freeCount[order] -= 1;
+        return true;
+    }
+
+    /**
+     * Take a free block of the given order, splitting a larger block if needed
+     * For proper practices should only be called within a function holding the semaphore lock
+     * @param order The block order
+     * @return The block, or null if no large enough block is free
+     */
+    private Block split(int order) {
+        // Find the smallest order with a free block
+        int from = order;
+        while (from < free.length && freeCount[from] == 0) {
+            from++;
+        }
+
+        // No large enough block is free
+        if (from >= free.length) {
+            return null;
+        }
+
+        // Take the lowest addressed block of that order
+        int start = free[from].nextSetBit(0) << from;
+        takeFree(start, from);
+
+        // Split the block in half until it is the right size, freeing the upper halves
+        while (from > order) {
+            from--;
+            markFree(start + (1 << from), from);
+        }
+
+        return new Block(start, start + (1 << order));
+    }
+
+    /**
+     * Return a block to the free bitmaps, merging it with its buddy at each order
+     * For proper practices should only be called within a function holding the semaphore lock
+     * @param block The released block
+     */
+    private void merge(Block block) {
+        int start = block.start();
+        int order = orderOf(block.size());
+
+        // Merge while the buddy is also free
+        while (order < free.length - 1 && takeFree(start ^ (1 << order), order)) {
+            start &= ~(1 << order);
+            order++;
+        }
+
+        markFree(start, order);
+    }
+
+    /**
+     * Allocate the smallest power of two holding the request. If no block is large
+     * enough, allocate one block per power of two in the size instead
+     * i.e. 100 bytes = 64 + 32 + 4
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @throws InterruptedException
+     */
+    @Override
+    public boolean allocate(int pid, int size) throws InterruptedException {
+        // The allocation request is too large
+        if (size <= 0 || size > this.size) {
+            Log.println("Cannot fullfill allocation request: Memory Index Out of Bounds");
+            return false;
+        }
+
+        // Acquire the semaphore lock
+        semaphore.waitSem();
+
+        boolean allocated = false;
+
+        try {
+            ArrayList<Block> blocks = new ArrayList<>();
+
+            // Try a single block holding the whole allocation
+            Block block = orderOf(size) < free.length ? split(orderOf(size)) : null;
+
+            if (block != null) {
+                blocks.add(block);
+            }
+            // Take one block per power of two in the size
+            else {
+                for (int order=free.length - 1; order>=0; order--) {
+                    if ((size & (1 << order)) == 0) {
+                        continue;
+                    }
+
+                    block = split(order);
+
+                    // Out of memory, so return the blocks already taken
+                    if (block == null) {
+                        for (Block taken : blocks) {
+                            merge(taken);
+                        }
+
+                        blocks = null;
+                        break;
+                    }
+
+                    blocks.add(block);
+                }
+            }
+
+            // Give each block to the process
+            if (blocks != null) {
+                table.putIfAbsent(pid, new ArrayList<Block>());
+                for (Block taken : blocks) {
+                    table.get(pid).add(taken);
+                    usage.merge(pid, new Usage(taken.size(), 1), Usage::add);
+                    memory.setOwner(taken, pid);
+                }
+
+                allocated = true;
+            }
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+        }
+
+        // Displayed once the lock is released
+        if (!allocated) {
+            Log.println("Failed to allocate memory: Out of Memory");
+        }
+
+        return allocated;
+    }
+
+    @Override
+    public void free(int pid) throws InterruptedException {
+        free(pid, true);
+    }
+
+    @Override
+    public void release(int pid) throws InterruptedException {
+        free(pid, false);
+    }
+
+    /**
+     * Release memory held by a process
+     * @param pid The process ID
+     * @param report Whether to display the process terminating
+     * @throws InterruptedException
+     */
+    private void free(int pid, boolean report) throws InterruptedException {
+        // Acquire the semaphore lock
+        semaphore.waitSem();
+
+        // Take the processes memory allocation list
+        ArrayList<Block> heldMemory = table.remove(pid);
+        usage.remove(pid);
+
+        // The process isn't holding any memory
+        if (heldMemory == null) {
+            // Release the semaphore lock
+            semaphore.signal();
+            return;
+        }
+
+        // Return each block, merging it with its buddies
+        for (Block heldBlock : heldMemory) {
+            memory.setOwner(heldBlock, 0);
+            merge(heldBlock);
+        }
+
+        // Release the semaphore lock
+        semaphore.signal();
+
+        if (report) {
+            Log.println("Terminated process: PID " + pid);
+        }
+    }
+
+    @Override
+    public boolean hasAllocation(int pid) {
+        try {
+            // Acquire the semaphore lock
+            semaphore.waitSem();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        try {
+            return table.containsKey(pid);
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+        }
+    }
+
+    @Override
+    public Map<Integer, Usage> getUsage() {
+        try {
+            // Acquire the semaphore lock
+            semaphore.waitSem();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new HashMap<>();
+        }
+
+        try {
+            return new HashMap<>(usage);
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+        }
+    }
+
+    @Override
+    public int getOwner(int address) throws InterruptedException {
+        try {
+            // Acquire the semaphore lock
+            semaphore.waitSem();
+
+            return memory.getOwner(address);
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public List<Segment> getSegments() throws InterruptedException {
+        ArrayList<Segment> segments = new ArrayList<>();
+
+        // Acquire the semaphore lock
+        semaphore.waitSem();
+
+        MemoryView.addRuns(segments, memory);
+
+        // Release the semaphore lock
+        semaphore.signal();
+
+        return segments;
+    }
+
+    @Override
+    public void printMemory() {
+        try {
+            new MemoryView().printMap(this);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
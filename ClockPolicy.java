@@ -0,0 +1,69 @@
+/**
+ * Approximates LRU with a reference bit per frame. The clock hand sweeps the frames,
+ * clearing reference bits, and evicts the first loaded frame whose bit is already clear.
+ */
+public class ClockPolicy implements ReplacementPolicy {
+    // Whether each frame holds a page, and was recently referenced
+    private boolean[] loaded, referenced;
+    // The number of loaded frames
+    private int count = 0;
+    // The next frame the hand checks
+    private int hand = 0;
+
+    public ClockPolicy(int frames) {
+        loaded = new boolean[frames];
+        referenced = new boolean[frames];
+    }
+
+    @Override
+    public void loaded(int frame) {
+        if (!loaded[frame]) {
+            count++;
+        }
+
+        loaded[frame] = true;
+        referenced[frame] = true;
+    }
+
+    @Override
+    public void accessed(int frame) {
+        referenced[frame] = true;
+    }
+
+    @Override
+    public void removed(int frame) {
+        if (loaded[frame]) {
+            count--;
+        }
+
+        loaded[frame] = false;
+        referenced[frame] = false;
+    }
+
+    @Override
+    public int victim() {
+        // No frame is loaded
+        if (count == 0) {
+            return -1;
+        }
+
+        // Sweep until a loaded frame without its reference bit is found
+        while (true) {
+            int frame = hand;
+            hand = (hand + 1) % loaded.length;
+
+            if (!loaded[frame]) {
+                continue;
+            }
+
+            // Give the frame a second chance
+            if (referenced[frame]) {
+                referenced[frame] = false;
+                continue;
+            }
+
+            removed(frame);
+            return frame;
+        }
+    }
+}
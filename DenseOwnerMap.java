@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/**
+ * Stores the owner of every byte of memory in an array, one int per byte.
+ * Lookups are O(1), but each allocate or free writes every byte of the block.
+ */
+public class DenseOwnerMap implements OwnerMap {
+    // Used a fixed-size array to simulate memory blocks
+    private int[] memory;
+    // The index of the first byte in the array
+    private int start;
+
+    public DenseOwnerMap(int maxBytes) {
+        this(0, maxBytes);
+    }
+
+    /**
+     * Creates an owner map covering part of memory
+     * @param start The first byte covered
+     * @param end The end of the bytes covered (exclusive)
+     */
+    public DenseOwnerMap(int start, int end) {
+        this.start = start;
+        this.memory = new int[end - start];
+    }
+
+    @Override
+    public void setOwner(Block block, int pid) {
+        // Set each byte in the block held by PID
+        Arrays.fill(memory, block.start() - start, block.end() - start, pid);
+    }
+
+    @Override
+    public int getOwner(int address) {
+        return memory[address - start];
+    }
+
+    @Override
+    public int getRunEnd(int address) {
+        int owner = memory[address - start];
+        int end = address - start + 1;
+
+        // Go through each byte, until the owner changes
+        while (end < memory.length && memory[end] == owner) {
+            end++;
+        }
+
+        return end + start;
+    }
+
+    @Override
+    public int start() {
+        return this.start;
+    }
+
+    @Override
+    public int end() {
+        return this.start + memory.length;
+    }
+}
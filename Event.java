@@ -0,0 +1,61 @@
+/**
+ * A scheduling event, happening to a process at a point in time.
+ * Events at the same time are ordered by creation, so the simulation is deterministic.
+ */
+public class Event implements Comparable<Event> {
+    private long time;
+    private Type type;
+    private PCB process;
+    // The order the event was created in
+    private long sequence;
+    // Whether the event was cancelled, i.e. a time slice cut short by preemption
+    private boolean cancelled = false;
+
+    /**
+     * Creates an event
+     * @param time The time the event happens (ms)
+     * @param type The kind of event
+     * @param process The process the event happens to
+     * @param sequence The order the event was created in
+     */
+    public Event(long time, Type type, PCB process, long sequence) {
+        this.time = time;
+        this.type = type;
+        this.process = process;
+        this.sequence = sequence;
+    }
+
+    public static enum Type {
+        ARRIVAL,
+        SLICE_END,
+        IO_COMPLETE;
+    }
+
+    public long getTime() {
+        return this.time;
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    public PCB getProcess() {
+        return this.process;
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    @Override
+    public int compareTo(Event other) {
+        if (this.time != other.time) {
+            return Long.compare(this.time, other.time);
+        }
+        return Long.compare(this.sequence, other.sequence);
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * A multi-level feedback queue. Processes start in the top level; one that uses its
+ * whole quantum moves down a level, where the quantum is twice as long. The highest
+ * non-empty level always runs first, in round-robin order.
+ */
+public class FeedbackScheduler implements Scheduler {
+    // The ready processes of each level, from first to last
+    private ArrayDeque<PCB>[] levels;
+    // The quantum of the top level (ms)
+    private int quantum;
+    // The number of ready processes
+    private int count = 0;
+
+    /**
+     * Creates a multi-level feedback queue
+     * @param levels The number of levels
+     * @param quantum The quantum of the top level (ms)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public FeedbackScheduler(int levels, int quantum) {
+        this.quantum = quantum;
+        this.levels = new ArrayDeque[levels];
+
+        for (int i=0; i<levels; i++) {
+            this.levels[i] = new ArrayDeque<>();
+        }
+    }
+
+    @Override
+    public void add(PCB process) {
+        levels[process.getLevel()].addLast(process);
+        count++;
+    }
+
+    @Override
+    public PCB next() {
+        // Take from the highest non-empty level
+        for (ArrayDeque<PCB> level : levels) {
+            if (!level.isEmpty()) {
+                count--;
+                return level.pollFirst();
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int quantum(PCB process) {
+        // Double the quantum at each level, stopping before it would overflow
+        return quantum << Math.min(process.getLevel(), Integer.numberOfLeadingZeros(quantum) - 1);
+    }
+
+    @Override
+    public boolean preempts(PCB running, PCB arrived) {
+        // A process in a higher level runs first
+        return arrived.getLevel() < running.getLevel();
+    }
+
+    @Override
+    public void expired(PCB process) {
+        // Move down a level
+        process.setLevel(Math.min(process.getLevel() + 1, levels.length - 1));
+        add(process);
+    }
+
+    @Override
+    public PCB steal(int core) {
+        // Take from the back of the lowest non-empty level
+        for (int i=levels.length - 1; i>=0; i--) {
+            Iterator<PCB> processes = levels[i].descendingIterator();
+
+            while (processes.hasNext()) {
+                PCB process = processes.next();
+
+                if (process.canRunOn(core)) {
+                    processes.remove();
+                    count--;
+                    return process;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+}
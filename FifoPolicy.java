@@ -0,0 +1,90 @@
+/**
+ * Evicts the page that was loaded first.
+ * Loaded frames form a doubly linked list, stored in arrays, from oldest to newest.
+ */
+public class FifoPolicy implements ReplacementPolicy {
+    // The previous and next frame in the list (-1 == none)
+    protected int[] prev, next;
+    // Whether each frame is in the list
+    protected boolean[] linked;
+    // The oldest and newest frames (-1 == empty)
+    protected int head = -1, tail = -1;
+
+    public FifoPolicy(int frames) {
+        prev = new int[frames];
+        next = new int[frames];
+        linked = new boolean[frames];
+    }
+
+    /**
+     * Add a frame as the newest in the list
+     * @param frame The frame index
+     */
+    protected void append(int frame) {
+        prev[frame] = tail;
+        next[frame] = -1;
+
+        if (tail == -1) {
+            head = frame;
+        }
+        else {
+            next[tail] = frame;
+        }
+
+        tail = frame;
+        linked[frame] = true;
+    }
+
+    /**
+     * Remove a frame from the list
+     * @param frame The frame index
+     */
+    protected void unlink(int frame) {
+        if (!linked[frame]) {
+            return;
+        }
+
+        if (prev[frame] == -1) {
+            head = next[frame];
+        }
+        else {
+            next[prev[frame]] = next[frame];
+        }
+
+        if (next[frame] == -1) {
+            tail = prev[frame];
+        }
+        else {
+            prev[next[frame]] = prev[frame];
+        }
+
+        linked[frame] = false;
+    }
+
+    @Override
+    public void loaded(int frame) {
+        unlink(frame);
+        append(frame);
+    }
+
+    @Override
+    public void accessed(int frame) {
+        // The load order doesn't change on access
+    }
+
+    @Override
+    public void removed(int frame) {
+        unlink(frame);
+    }
+
+    @Override
+    public int victim() {
+        int frame = head;
+
+        if (frame != -1) {
+            unlink(frame);
+        }
+
+        return frame;
+    }
+}
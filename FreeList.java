@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Holds the free memory blocks (PID 0), indexed by size so a fitting block can be
+ * found in O(log n) instead of scanning every block (except with first fit, which
+ * checks each large enough size class). Also keeps a running count of
+ * the free bytes, so checking for enough memory is O(1).
+ * A second index, ordered by start, finds a released block's neighbours in O(log n).
+ */
+public class FreeList {
+    // Free blocks grouped by size, then ordered by start index
+    // i.e. 5 -> {0: (0, 5), 20: (20, 25)}
+    private TreeMap<Integer, TreeMap<Integer, Block>> bySize;
+    // Free blocks ordered by start index
+    // i.e. 0 -> (0, 5), 8 -> (8, 12)
+    private TreeMap<Integer, Block> byStart;
+    // The number of free bytes across all blocks
+    private int total = 0;
+    // The number of free blocks
+    private int count = 0;
+
+    public FreeList() {
+        bySize = new TreeMap<>();
+        byStart = new TreeMap<>();
+    }
+
+    /**
+     * Add a block to the free list
+     * @param block The free block
+     */
+    public void add(Block block) {
+        // Ignore empty blocks
+        if (block.size() == 0) {
+            return;
+        }
+
+        // Create the size class, if none exists
+        bySize.computeIfAbsent(block.size(), k -> new TreeMap<>()).put(block.start(), block);
+        byStart.put(block.start(), block);
+
+        total += block.size();
+        count += 1;
+    }
+
+    /**
+     * Remove a block from the free list
+     * @param block The free block
+     * @return True if the block was in the free list; False, otherwise
+     */
+    public boolean remove(Block block) {
+        // Get the blocks of the same size
+        TreeMap<Integer, Block> blocks = bySize.get(block.size());
+
+        // The block isn't in the free list
+        if (blocks == null || blocks.remove(block.start()) == null) {
+            return false;
+        }
+
+        // Remove the size class once it is empty
+        if (blocks.isEmpty()) {
+            bySize.remove(block.size());
+        }
+        byStart.remove(block.start());
+
+        total -= block.size();
+        count -= 1;
+
+        return true;
+    }
+
+    /**
+     * Return a block to the free list, merging it with the free blocks on either side
+     * i.e. releasing (5, 8) between (0, 5) and (8, 12) leaves the single block (0, 12)
+     * @param block The released block
+     * @return The merged free block
+     */
+    public Block release(Block block) {
+        int start = block.start();
+        int end = block.end();
+
+        // The free block ending where the released block starts
+        Map.Entry<Integer, Block> left = byStart.lowerEntry(start);
+        if (left != null && left.getValue().end() == start) {
+            remove(left.getValue());
+            start = left.getValue().start();
+        }
+
+        // The free block starting where the released block ends
+        Block right = byStart.get(end);
+        if (right != null) {
+            remove(right);
+            end = right.end();
+        }
+
+        // Add the merged block
+        Block merged = (start == block.start() && end == block.end()) ? block : new Block(start, end);
+        add(merged);
+
+        return merged;
+    }
+
+    /**
+     * Find a free block large enough to hold an allocation
+     * @param size The allocation size
+     * @param fit The placement strategy
+     * @return The chosen block, or null if no single block is large enough
+     */
+    public Block find(int size, MemoryManager.Fit fit) {
+        switch (fit) {
+            // Smallest block that is large enough
+            case BEST_FIT: {
+                Map.Entry<Integer, TreeMap<Integer, Block>> entry = bySize.ceilingEntry(size);
+                return entry == null ? null : entry.getValue().firstEntry().getValue();
+            }
+            // Largest block, if it is large enough
+            case WORST_FIT: {
+                Block largest = largest();
+                return largest == null || largest.size() < size ? null : largest;
+            }
+            // Lowest addressed block that is large enough
+            // Only checks the first block of each large enough size class, but that is
+            // O(distinct sizes), not O(log n): the slow strategy on a fragmented heap
+            default: {
+                Block first = null;
+                for (TreeMap<Integer, Block> blocks : bySize.tailMap(size, true).values()) {
+                    Block block = blocks.firstEntry().getValue();
+                    if (first == null || block.start() < first.start()) {
+                        first = block;
+                    }
+                }
+                return first;
+            }
+        }
+    }
+
+    /**
+     * Get the largest free block
+     * @return The largest block, or null if there is no free memory
+     */
+    public Block largest() {
+        // No free memory
+        if (bySize.isEmpty()) {
+            return null;
+        }
+
+        return bySize.lastEntry().getValue().firstEntry().getValue();
+    }
+
+    /**
+     * Get every free block, in address order
+     * @return A copy of the free blocks
+     */
+    public ArrayList<Block> blocks() {
+        return new ArrayList<>(byStart.values());
+    }
+
+    /**
+     * Get the number of free bytes
+     * @return Sum of every free block's size
+     */
+    public int getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Get the number of free blocks
+     * @return The block count
+     */
+    public int size() {
+        return this.count;
+    }
+}
@@ -0,0 +1,304 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs each allocator engine through the same random workload, in step with a
+ * ReferenceModel, and stops at the first step where an engine breaks a rule. Each
+ * allocation is checked as it's made; the whole layout is checked every 'check' steps,
+ * and at the end. Then each engine runs the workload again unchecked, and its speed and
+ * fragmentation are reported.
+ *
+ *   arena:  MemoryManager, best fit, interval layout, split into 'arenas' arenas
+ *   dense:  MemoryManager, first fit, dense layout, one arena
+ *   buddy:  BuddyAllocator
+ *   paged:  PagedMemoryManager, without swap
+ *
+ * Options are key=value pairs, as Benchmark, i.e.
+ * "java Harness engines=arena,buddy ops=5000000 sizes=bimodal:64:4096:5 seed=7"
+ * A failure prints its seed and step, so it can be run again, or written out with trace=file.
+ */
+public class Harness {
+    // The options, with their defaults
+    private static Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("engines", "arena,dense,buddy,paged");
+        DEFAULTS.put("heap", "1048576");
+        DEFAULTS.put("ops", "1000000");
+        DEFAULTS.put("seed", "1");
+        // The workload: allocation sizes and process lifetimes (WorkloadGenerator distributions),
+        // the most live processes, and the chance each operation creates one
+        DEFAULTS.put("sizes", "exp:256");
+        DEFAULTS.put("lifetime", "exp:2000");
+        DEFAULTS.put("live", "1000");
+        DEFAULTS.put("creates", "0.05");
+        // Steps between whole layout checks (0 == only at the end)
+        DEFAULTS.put("check", "1000");
+        DEFAULTS.put("arenas", "4");
+        DEFAULTS.put("page", "64");
+        // Write the workload as a trace for Main --batch, instead of running it
+        DEFAULTS.put("trace", "");
+    }
+
+    // The options in use
+    private static Map<String, String> options = new HashMap<>();
+
+    // The workload, generated once so every engine runs the same operations
+    private static byte[] types;
+    private static int[] pids;
+    private static int[] sizes;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        options.putAll(DEFAULTS);
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+
+            // Check the input
+            if (!DEFAULTS.containsKey(pair[0])) {
+                System.out.println("Unknown option: " + pair[0] + " (options: " + DEFAULTS.keySet() + ")");
+                return;
+            }
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+
+        // The engines' messages would be measured too
+        Log.setEnabled(false);
+
+        if (!options.get("trace").isEmpty()) {
+            generator().writeTrace(Paths.get(options.get("trace")), number("ops"));
+            System.out.println("Wrote " + number("ops") + " operations to " + options.get("trace"));
+            return;
+        }
+
+        generate();
+
+        boolean passed = true;
+        for (String engine : options.get("engines").split(",")) {
+            passed &= run(engine);
+        }
+
+        System.out.println(passed ? "All engines passed" : "Some engines failed");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Get a generator for the workload in the options
+     * @return The workload generator
+     */
+    private static WorkloadGenerator generator() {
+        return new WorkloadGenerator(number("seed"), options.get("sizes"), options.get("lifetime"),
+                number("live"), Double.parseDouble(options.get("creates")));
+    }
+
+    /**
+     * Generate the workload in the options
+     */
+    private static void generate() {
+        int ops = number("ops");
+        WorkloadGenerator generator = generator();
+
+        types = new byte[ops];
+        pids = new int[ops];
+        sizes = new int[ops];
+
+        for (int i=0; i<ops; i++) {
+            types[i] = (byte) generator.next().ordinal();
+            pids[i] = generator.getPid();
+            sizes[i] = generator.getSize();
+        }
+    }
+
+    /**
+     * Create a new engine
+     * @param engine The engine name
+     * @return The allocator, or null if the name is unknown
+     * @throws InterruptedException
+     */
+    private static Allocator create(String engine) throws InterruptedException {
+        int heap = number("heap");
+
+        switch (engine) {
+            case ("arena"):
+                return new MemoryManager(heap, MemoryManager.Fit.BEST_FIT, MemoryManager.Layout.INTERVAL, number("arenas"));
+            case ("dense"):
+                return new MemoryManager(heap, MemoryManager.Fit.FIRST_FIT, MemoryManager.Layout.DENSE, 1);
+            case ("buddy"):
+                return new BuddyAllocator(heap);
+            case ("paged"):
+                return new PagedMemoryManager(heap, number("page"), 16, 0, PagedMemoryManager.Replacement.LRU);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Check an engine against the model, then time it
+     * @param name The engine name
+     * @return True if the engine passed every check; False, otherwise
+     * @throws InterruptedException
+     */
+    private static boolean run(String name) throws InterruptedException {
+        Allocator engine = create(name);
+
+        // Check the input
+        if (engine == null) {
+            System.out.println(name + ": unknown engine");
+            return false;
+        }
+
+        String problem = verify(engine);
+        if (problem != null) {
+            System.out.println(name + ": FAILED (seed " + options.get("seed") + ") " + problem);
+            return false;
+        }
+
+        time(name, create(name));
+        return true;
+    }
+
+    /**
+     * Run the workload in step with the reference model
+     * Only MemoryManager places an allocation in any free bytes, at exactly the size asked,
+     * so only its results must match the model exactly
+     * @param engine The allocator
+     * @return The first problem, with its step and operation, or null if there is none
+     * @throws InterruptedException
+     */
+    private static String verify(Allocator engine) throws InterruptedException {
+        ReferenceModel model = new ReferenceModel(number("heap"));
+        boolean exact = engine instanceof MemoryManager;
+        int check = number("check");
+        String problem = null;
+        int i = 0;
+
+        for (; i<types.length && problem == null; i++) {
+            int pid = pids[i];
+
+            switch (WorkloadGenerator.Type.values()[types[i]]) {
+                case ALLOC:
+                    boolean fits = model.fits(sizes[i]);
+                    boolean allocated = engine.allocate(pid, sizes[i]);
+
+                    if (allocated) {
+                        model.allocate(pid, sizes[i]);
+                    }
+
+                    // The model has enough free bytes
+                    if (exact && allocated != fits) {
+                        problem = "allocate returned " + allocated + " with " + model.getFree() + " bytes free";
+                    }
+                    else if (engine.hasAllocation(pid) != model.hasAllocation(pid)) {
+                        problem = "hasAllocation is " + engine.hasAllocation(pid);
+                    }
+                    break;
+                case FREE:
+                    engine.free(pid);
+                    model.free(pid);
+
+                    if (engine.hasAllocation(pid)) {
+                        problem = "memory still held after free";
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            // Check the whole layout
+            if (problem == null && check > 0 && (i + 1) % check == 0) {
+                problem = model.check(engine, exact);
+            }
+        }
+
+        // Check the layout the workload ends with
+        if (problem == null) {
+            problem = model.check(engine, exact);
+            return problem == null ? null : "at the end: " + problem;
+        }
+
+        return "step " + i + " (" + describe(i - 1) + "): " + problem;
+    }
+
+    /**
+     * Run the workload unchecked, and display the engine's speed and fragmentation
+     * Fragmentation is sampled 100 times from the layout, as the fraction of free bytes
+     * outside the largest free run
+     * @param name The engine name
+     * @param engine The allocator
+     * @throws InterruptedException
+     */
+    private static void time(String name, Allocator engine) throws InterruptedException {
+        int every = Math.max(1, types.length / 100);
+        long failures = 0, nanos = 0;
+        double fragmentation = 0;
+        int samples = 0;
+
+        for (int start=0; start<types.length; start+=every) {
+            int end = Math.min(types.length, start + every);
+            long since = System.nanoTime();
+
+            for (int i=start; i<end; i++) {
+                if (types[i] == WorkloadGenerator.Type.ALLOC.ordinal()) {
+                    if (!engine.allocate(pids[i], sizes[i])) {
+                        failures++;
+                    }
+                }
+                else if (types[i] == WorkloadGenerator.Type.FREE.ordinal()) {
+                    engine.free(pids[i]);
+                }
+            }
+
+            nanos += System.nanoTime() - since;
+
+            // Not timed
+            fragmentation += fragmentation(engine.getSegments());
+            samples++;
+        }
+
+        System.out.println(String.format("%s: passed, %.0f ops/s, fragmentation %.3f mean, %.3f final, %d failed allocations",
+                name, types.length * 1e9 / Math.max(1, nanos), fragmentation / samples,
+                fragmentation(engine.getSegments()), failures));
+    }
+
+    /**
+     * Get how fragmented a layout's free memory is
+     * @param segments The layout
+     * @return The fraction of free bytes outside the largest free run
+     */
+    private static double fragmentation(List<Segment> segments) {
+        long total = 0;
+        int largest = 0;
+
+        for (Segment segment : segments) {
+            if (segment.owner() == 0) {
+                total += segment.size();
+                largest = Math.max(largest, segment.size());
+            }
+        }
+
+        return total == 0 ? 0 : 1 - (double) largest / total;
+    }
+
+    /**
+     * Describe an operation of the workload
+     * @param i The step
+     * @return i.e. "alloc 3 128"
+     */
+    private static String describe(int i) {
+        WorkloadGenerator.Type type = WorkloadGenerator.Type.values()[types[i]];
+        return type.toString().toLowerCase() + " " + pids[i] + (type == WorkloadGenerator.Type.ALLOC ? " " + sizes[i] : "");
+    }
+
+    /**
+     * Get a whole number option
+     * @param key The option
+     * @return The option's value
+     */
+    private static int number(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+}
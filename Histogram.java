@@ -0,0 +1,77 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records a distribution of values, i.e. latencies in nanoseconds, without locking.
+ * Values are counted in power-of-two buckets (bucket i holds 2^i up to 2^(i+1) - 1),
+ * so recording is a few atomic adds, and percentiles are accurate to within 2x.
+ */
+public class Histogram {
+    // The number of values in each bucket
+    private AtomicLongArray buckets = new AtomicLongArray(64);
+    // The number of values, their sum, and the largest
+    private LongAdder count = new LongAdder();
+    private LongAdder sum = new LongAdder();
+    private LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a value
+     * @param value The value (negative values are recorded as 0)
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value | 1));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long values = count.sum();
+        return values == 0 ? 0 : (double) sum.sum() / values;
+    }
+
+    /**
+     * Get the value below which a fraction of the values fall
+     * @param fraction The fraction, i.e. 0.99 for the 99th percentile
+     * @return The upper bound of the bucket holding the percentile (0 == no values)
+     */
+    public long getPercentile(double fraction) {
+        long values = count.sum();
+
+        // Nothing is recorded
+        if (values == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(fraction * values);
+        long seen = 0;
+
+        for (int i=0; i<64; i++) {
+            seen += buckets.get(i);
+
+            if (seen >= rank) {
+                // The largest value in the bucket, but never more than the largest recorded
+                return Math.min(getMax(), i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1);
+            }
+        }
+
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return getCount() + " values, mean " + Math.round(getMean()) + ", p50 " + getPercentile(0.5)
+                + ", p99 " + getPercentile(0.99) + ", max " + getMax();
+    }
+}
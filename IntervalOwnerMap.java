@@ -0,0 +1,82 @@
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores the owner of memory as runs of bytes, keyed by the start of each run.
+ * i.e. {0: 1, 30: 0} means bytes 0-29 are held by PID 1, and the rest are free.
+ * Allocate, free and lookups are O(log runs), independent of the block sizes.
+ */
+public class IntervalOwnerMap implements OwnerMap {
+    // The start of each run, mapped to the PID owning it
+    // Each run continues until the start of the next run
+    private TreeMap<Integer, Integer> runs;
+    // The range of memory covered
+    private int start, end;
+
+    public IntervalOwnerMap(int maxBytes) {
+        this(0, maxBytes);
+    }
+
+    /**
+     * Creates an owner map covering part of memory
+     * @param start The first byte covered
+     * @param end The end of the bytes covered (exclusive)
+     */
+    public IntervalOwnerMap(int start, int end) {
+        this.start = start;
+        this.end = end;
+        this.runs = new TreeMap<>();
+
+        // All of memory starts out free
+        runs.put(start, 0);
+    }
+
+    @Override
+    public void setOwner(Block block, int pid) {
+        // Ignore empty blocks
+        if (block.size() == 0) {
+            return;
+        }
+
+        int start = block.start();
+        int end = block.end();
+
+        // The owner of the byte following the block, which must keep its run
+        int after = end < this.end ? getOwner(end) : -1;
+
+        // Remove the runs starting within the block
+        runs.subMap(start, true, end, true).clear();
+
+        // Start the block's run, unless the previous run has the same owner
+        Map.Entry<Integer, Integer> before = runs.lowerEntry(start);
+        if (before == null || before.getValue() != pid) {
+            runs.put(start, pid);
+        }
+
+        // Restart the following run, unless it has the same owner
+        if (after != -1 && after != pid) {
+            runs.put(end, after);
+        }
+    }
+
+    @Override
+    public int getOwner(int address) {
+        return runs.floorEntry(address).getValue();
+    }
+
+    @Override
+    public int getRunEnd(int address) {
+        Integer next = runs.higherKey(address);
+        return next == null ? end : next;
+    }
+
+    @Override
+    public int start() {
+        return this.start;
+    }
+
+    @Override
+    public int end() {
+        return this.end;
+    }
+}
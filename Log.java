@@ -0,0 +1,27 @@
+/**
+ * Displays the messages of the memory, process and resource managers, i.e. "Terminated
+ * process: PID 1". Messages can be turned off, so replaying a long trace isn't slowed
+ * down by printing; requested output, like printMemory, is always displayed.
+ */
+public class Log {
+    // Whether messages are displayed
+    private static volatile boolean enabled = true;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Log.enabled = enabled;
+    }
+
+    /**
+     * Display a message, if messages are turned on
+     * @param message The message
+     */
+    public static void println(String message) {
+        if (enabled) {
+            System.out.println(message);
+        }
+    }
+}
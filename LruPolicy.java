@@ -0,0 +1,18 @@
+/**
+ * Evicts the page that was least recently used.
+ * Every access moves the frame to the newest end of the list, in O(1).
+ */
+public class LruPolicy extends FifoPolicy {
+    public LruPolicy(int frames) {
+        super(frames);
+    }
+
+    @Override
+    public void accessed(int frame) {
+        // Move the frame to the most recently used end
+        if (linked[frame] && frame != tail) {
+            unlink(frame);
+            append(frame);
+        }
+    }
+}
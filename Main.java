@@ -1,3 +1,9 @@
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.util.Map;
 import java.util.Scanner;
 
 /* Possible Bonus Points (10 Pts Each):
@@ -8,12 +14,88 @@ import java.util.Scanner;
  */
 public class Main {
 
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws InterruptedException, IOException {
         // Create commandline input scanner
         Scanner input = new Scanner(System.in);
 
-        ProcessManager processMgr = new ProcessManager();
-        MemoryManager memoryMgr = new MemoryManager(100);
+        // Options after the engine, i.e. "java Main buddy --batch=trace.txt --on-failure=wait --memory=4096"
+        String batch = null;
+        TraceReplay.OnFailure onFailure = TraceReplay.OnFailure.BLOCK;
+        int bytes = 100;
+        for (String arg : args) {
+            if (arg.startsWith("--batch=")) {
+                batch = arg.substring("--batch=".length());
+            }
+            else if (arg.startsWith("--on-failure=")) {
+                onFailure = TraceReplay.OnFailure.valueOf(arg.substring("--on-failure=".length()).toUpperCase());
+            }
+            else if (arg.startsWith("--memory=")) {
+                bytes = Integer.parseInt(arg.substring("--memory=".length()));
+            }
+        }
+
+        // Choose the memory allocation engine, i.e. "java Main buddy"
+        Allocator memoryMgr;
+        if (args.length > 0 && args[0].equalsIgnoreCase("buddy")) {
+            memoryMgr = new BuddyAllocator(bytes);
+        }
+        // Paged memory with 10 pages of swap, i.e. "java Main paged clock"
+        else if (args.length > 0 && args[0].equalsIgnoreCase("paged")) {
+            PagedMemoryManager.Replacement replacement = PagedMemoryManager.Replacement.LRU;
+            if (args.length > 1 && !args[1].startsWith("--")) {
+                replacement = PagedMemoryManager.Replacement.valueOf(args[1].toUpperCase());
+            }
+            memoryMgr = new PagedMemoryManager(bytes, 10, 16, 10, replacement);
+        }
+        else {
+            memoryMgr = new MemoryManager(bytes);
+        }
+
+        // Processes free their memory when they terminate
+        ProcessManager processMgr = new ProcessManager(memoryMgr);
+
+        // Processes waiting for memory are made ready once it is allocated
+        if (memoryMgr instanceof MemoryManager) {
+            ((MemoryManager) memoryMgr).setAdmitListener(admitted -> {
+                processMgr.readyProcess(admitted);
+                Log.println("Allocated waiting memory to " + admitted);
+            });
+        }
+
+        // Five lockable resources, with deadlock detection
+        ResourceManager resourceMgr = new ResourceManager(5, ResourceManager.Mode.DETECT);
+        processMgr.setResourceManager(resourceMgr);
+
+        // Processes waiting for a resource are made ready once they are given it
+        resourceMgr.setGrantListener(granted -> {
+            processMgr.readyProcess(granted);
+            Log.println("Resource given to " + granted);
+        });
+
+        // Replay a trace without prompting, with messages off and simulated time ("-" == standard input)
+        if (batch != null) {
+            Log.setEnabled(false);
+            processMgr.setSimulated(true);
+
+            TraceReplay replay = new TraceReplay(processMgr, memoryMgr, onFailure);
+            long start = System.nanoTime();
+
+            try (ReadableByteChannel trace = batch.equals("-") ? Channels.newChannel(System.in) : FileChannel.open(Paths.get(batch))) {
+                replay.replay(trace);
+            }
+
+            replay.printSummary(System.nanoTime() - start);
+            return;
+        }
+
+        // Make the metrics readable through JMX, i.e. with jconsole
+        processMgr.getMetrics().register("scheduler");
+        if (memoryMgr instanceof MemoryManager) {
+            ((MemoryManager) memoryMgr).getMetrics().register("memory");
+        }
+
+        // Remembers the memory last displayed, for "mem diff"
+        MemoryView view = new MemoryView();
 
         // Initial Input Indicator
         System.out.print(">");
@@ -28,16 +110,109 @@ public class Main {
             switch (line.split(" ", 2)[0].toLowerCase()) {
                 // Create a new process
                 case ("create"):
+                    String[] words = line.split(" ");
+
+                    // Optional priority and CPU time, i.e. "create editor 1 3000"
+                    if (words.length == 4) {
+                        try {
+                            int burst = Integer.parseInt(words[3]);
+
+                            // Check the input
+                            if (burst < 0) {
+                                System.out.println("Invalid CPU time: " + burst);
+                                break;
+                            }
+
+                            processMgr.createProcess(words[1], Integer.parseInt(words[2]), burst);
+                            break;
+                        }
+                        catch (NumberFormatException e) {
+                            // The whole line is the process name
+                        }
+                    }
+
                     processMgr.createProcess(line.split(" ", 2)[1]);
                     break;
                 // Display processes information
                 case ("ps"):
+                    // Optionally only one state, i.e. "ps ready"
+                    if (line.split(" ").length > 1) {
+                        processMgr.listProcesses(PCB.State.valueOf(line.split(" ")[1].toUpperCase()));
+                        break;
+                    }
+
                     processMgr.listProcesses();
+
+                    // Display the memory held by each process
+                    for (Map.Entry<Integer, Usage> entry : memoryMgr.getUsage().entrySet()) {
+                        System.out.println("PID " + entry.getKey() + " memory: " + entry.getValue());
+                    }
                     break;
                 // Display process schedule information
                 case ("schedule"):
                     processMgr.schedule();
                     break;
+                // Choose between sleeping through time slices and simulating them, i.e. "clock virtual"
+                case ("clock"):
+                    processMgr.setSimulated(line.toLowerCase().endsWith("virtual"));
+                    break;
+                // Change the number of cores, i.e. "cores 4"
+                case ("cores"):
+                    processMgr.setCores(Integer.parseInt(line.split(" ", 2)[1]));
+                    break;
+                // Back each process with a thread running a workload, i.e. "workload 10 64" for
+                // 10 operations per slice of up to 64 bytes each, or "workload off"
+                case ("workload"):
+                    String[] settings = line.split(" ");
+
+                    if (settings.length < 2 || settings[1].equalsIgnoreCase("off")) {
+                        processMgr.setWorkload(null);
+                        break;
+                    }
+
+                    int maxAllocation = settings.length > 2 ? Integer.parseInt(settings[2]) : 16;
+                    processMgr.setWorkload(new Workload(memoryMgr, 5, Integer.parseInt(settings[1]), maxAllocation, maxAllocation * 16));
+                    System.out.println("Processes run on " + (ProcessThread.isVirtual() ? "virtual" : "platform") + " threads");
+                    break;
+                // Turn messages on or off, i.e. "log off" before scheduling many processes
+                case ("log"):
+                    Log.setEnabled(!line.toLowerCase().endsWith("off"));
+                    break;
+                // Restrict a process to one core, i.e. "affinity 1 0" ("affinity 1 -1" for any core)
+                case ("affinity"):
+                    processMgr.setAffinity(Integer.parseInt(line.split(" ", 3)[1]), Integer.parseInt(line.split(" ", 3)[2]));
+                    break;
+                // Change the scheduling policy, i.e. "policy rr 500"
+                case ("policy"):
+                    String[] options = line.split(" ", 3);
+                    int quantum = options.length > 2 ? Integer.parseInt(options[2]) : 1000;
+
+                    // Check the input
+                    if (quantum < 1) {
+                        System.out.println("Invalid time quantum: " + quantum);
+                        break;
+                    }
+
+                    switch (options.length > 1 ? options[1].toLowerCase() : "") {
+                        case ("rr"):
+                            processMgr.setPolicy(ProcessManager.Policy.ROUND_ROBIN, quantum);
+                            break;
+                        case ("priority"):
+                            processMgr.setPolicy(ProcessManager.Policy.PRIORITY, quantum);
+                            break;
+                        case ("sjf"):
+                            processMgr.setPolicy(ProcessManager.Policy.SJF, quantum);
+                            break;
+                        case ("srtf"):
+                            processMgr.setPolicy(ProcessManager.Policy.SRTF, quantum);
+                            break;
+                        case ("mlfq"):
+                            processMgr.setPolicy(ProcessManager.Policy.MLFQ, quantum);
+                            break;
+                        default:
+                            System.out.println("Policies: rr, priority, sjf, srtf, mlfq");
+                    }
+                    break;
                 // Allocate memory to a process
                 case ("alloc"):
                     // Get the PID
@@ -62,19 +237,174 @@ public class Main {
 
                         // The client said yes
                         if (answer.toLowerCase().startsWith("y")) {
-                            memoryMgr.free(pid);
+                            processMgr.terminateProcess(pid);
+                        }
+                        // Wait for other processes to free the memory, blocked until then
+                        else if (memoryMgr instanceof MemoryManager) {
+                            if (((MemoryManager) memoryMgr).allocateOrWait(pid, size)) {
+                                System.out.println("Allocated " + size + " bytes to " + pid);
+                            }
+                            else if (((MemoryManager) memoryMgr).isWaiting(pid)) {
+                                processMgr.blockProcess(pid);
+                                System.out.println("Process " + pid + " is waiting for memory");
+                            }
                         }
-
                         // The process has no memory allocated to it
-                        if (!memoryMgr.hasAllocation(pid)) {
+                        else if (!memoryMgr.hasAllocation(pid)) {
                             // Block the process from execution
                             processMgr.blockProcess(pid);
                         }
                     }
                     break;
-                // Display memory information
+                // Display the waiting allocation requests, or change the order they are admitted in, i.e. "wait aging"
+                case ("wait"):
+                    if (!(memoryMgr instanceof MemoryManager)) {
+                        System.out.println("Waiting isn't supported by this allocator");
+                        break;
+                    }
+
+                    switch (line.split(" ").length > 1 ? line.split(" ")[1].toLowerCase() : "") {
+                        case ("fifo"):
+                            ((MemoryManager) memoryMgr).setWaitPolicy(WaitQueue.Policy.FIFO);
+                            break;
+                        case ("smallest"):
+                            ((MemoryManager) memoryMgr).setWaitPolicy(WaitQueue.Policy.SMALLEST_FIRST);
+                            break;
+                        case ("aging"):
+                            ((MemoryManager) memoryMgr).setWaitPolicy(WaitQueue.Policy.AGING);
+                            break;
+                        default:
+                            ((MemoryManager) memoryMgr).printWaiting();
+                    }
+                    break;
+                // Request a resource for a process, i.e. "request 1 2"
+                case ("request"):
+                    pid = Integer.parseInt(line.split(" ", 3)[1]);
+                    int resource = Integer.parseInt(line.split(" ", 3)[2]);
+
+                    try {
+                        switch (resourceMgr.tryRequest(pid, resource)) {
+                            case GRANTED:
+                                System.out.println("PID " + pid + " holds resource " + resource);
+                                break;
+                            case WAITING:
+                                // Block the process until it is given the resource
+                                processMgr.blockProcess(pid);
+                                System.out.println("PID " + pid + " is waiting for resource " + resource);
+                                break;
+                            case DEADLOCK:
+                                System.out.println("Request refused");
+                                break;
+                        }
+                    }
+                    // Unclaimed, or already waiting for another resource
+                    catch (IllegalArgumentException e) {
+                        System.out.println("Request refused: " + e.getMessage());
+                    }
+                    break;
+                // Release a processes resource, i.e. "release 1 2"
+                case ("release"):
+                    resourceMgr.release(Integer.parseInt(line.split(" ", 3)[1]), Integer.parseInt(line.split(" ", 3)[2]));
+                    break;
+                // Declare the resources a process may hold, for deadlock avoidance, i.e. "claim 1 0 2"
+                case ("claim"):
+                    String[] claimed = line.split(" ");
+                    int[] claim = new int[claimed.length - 2];
+                    for (int i=0; i<claim.length; i++) {
+                        claim[i] = Integer.parseInt(claimed[i + 2]);
+                    }
+                    resourceMgr.setClaim(Integer.parseInt(claimed[1]), claim);
+                    break;
+                // Display the resources, or change the deadlock handling, i.e. "resources avoid"
+                case ("resources"):
+                    if (line.toLowerCase().endsWith("avoid")) {
+                        resourceMgr.setMode(ResourceManager.Mode.AVOID);
+                    }
+                    else if (line.toLowerCase().endsWith("detect")) {
+                        resourceMgr.setMode(ResourceManager.Mode.DETECT);
+                    }
+                    else {
+                        resourceMgr.printResources();
+                    }
+                    break;
+                // Compact memory, so each process holds one block per arena
+                case ("compact"):
+                    if (memoryMgr instanceof MemoryManager) {
+                        ((MemoryManager) memoryMgr).compact();
+                        System.out.println("Compacted memory");
+                    }
+                    else {
+                        System.out.println("Compaction isn't supported by this allocator");
+                    }
+                    break;
+                // Translate a processes virtual address, i.e. "translate 1 25"
+                case ("translate"):
+                    if (memoryMgr instanceof PagedMemoryManager) {
+                        PagedMemoryManager pagedMgr = (PagedMemoryManager) memoryMgr;
+                        String[] parts = line.split(" ", 4);
+
+                        try {
+                            int address = pagedMgr.translate(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                            System.out.println("Physical address: " + address);
+                        }
+                        catch (IllegalArgumentException e) {
+                            System.out.println("Invalid address: " + e.getMessage());
+                        }
+                        pagedMgr.printTlbStats();
+                    }
+                    else {
+                        System.out.println("Address translation needs the paged allocator");
+                    }
+                    break;
+                // Display page faults and evictions
+                case ("paging"):
+                    if (memoryMgr instanceof PagedMemoryManager) {
+                        ((PagedMemoryManager) memoryMgr).printPagingStats();
+                    }
+                    else {
+                        System.out.println("Paging statistics need the paged allocator");
+                    }
+                    break;
+                // Display the allocation, lock wait and scheduling metrics
+                case ("stats"):
+                    if (memoryMgr instanceof MemoryManager) {
+                        ((MemoryManager) memoryMgr).getMetrics().print();
+                    }
+                    processMgr.getMetrics().print();
+                    break;
+                // Save the memory and processes to a file, i.e. "save sim.snap"
+                case ("save"):
+                    try {
+                        Snapshot.save(Paths.get(line.split(" ", 2)[1]), memoryMgr, processMgr);
+                        System.out.println("Saved snapshot");
+                    }
+                    catch (IOException e) {
+                        System.out.println("Couldn't save snapshot: " + e.getMessage());
+                    }
+                    break;
+                // Restore the memory and processes from a file, i.e. "load sim.snap"
+                case ("load"):
+                    try {
+                        Snapshot.load(Paths.get(line.split(" ", 2)[1]), memoryMgr, processMgr);
+                        System.out.println("Loaded snapshot");
+                    }
+                    catch (IOException e) {
+                        System.out.println("Couldn't load snapshot: " + e.getMessage());
+                    }
+                    break;
+                // Display memory information, as a map, "mem segments" for each run of bytes,
+                // or "mem diff" for the runs changed since memory was last displayed
                 case ("mem"):
-                    memoryMgr.printMemory();
+                    switch (line.split(" ").length > 1 ? line.split(" ")[1].toLowerCase() : "") {
+                        case ("segments"):
+                            view.printSegments(memoryMgr);
+                            break;
+                        case ("diff"):
+                            view.printDiff(memoryMgr);
+                            break;
+                        default:
+                            view.printMap(memoryMgr);
+                    }
                     break;
                 // Exit the program
                 case ("exit"):
@@ -1,69 +1,326 @@
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 
 /**
  * What I'm currently thinking would be best to implement MemoryManager, is to store each RAM
- * allocation (Block) as a list within a HashMap, per each PID, with 0 being free. If the client 
+ * allocation (Block) as a list within a HashMap, per each PID, with 0 being free. If the client
  * allocates more RAM to a process than currently free, release the memory in-use, and wait.
+ *
+ * Requests made with allocateOrWait wait in a queue instead of failing, and are admitted
+ * as other processes free memory, in the order set by the wait policy.
+ *
+ * Memory can be split into arenas, each with its own free list, owner map and lock, so
+ * allocations from different threads don't have to wait on each other.
+ *
+ * Compaction packs each arena's held blocks together, one arena at a time, leaving
+ * a single free block at the end of the arena and one block per process.
+ *
+ * allocateAsync and freeAsync queue requests for a single writer thread, which applies
+ * them in batches while holding every arena's lock once per batch, and completes each
+ * request's future once it is applied, or once a waiting request is admitted.
+ *
+ * Allocations, frees and lock waits are counted and timed in the metrics. Messages are
+ * displayed once every lock is released, so slow output never holds up other threads.
  */
-public class MemoryManager {
-    // Number of rows to be displayed
-    private static int ROWS = 10;
+public class MemoryManager implements Allocator {
+    // The most asynchronous requests applied while holding the locks
+    private static int BATCH = 256;
 
-    // Used a fixed-size array to simulate memory blocks
-    private int[] memory;
-    private HashMap<Integer, ArrayList<Block>> table;
-    private Semaphore2 semaphore = new Semaphore2();
+    // The number of bytes of memory
+    private int size;
+    // The number of bytes covered by each arena
+    private int arenaSize;
+    // The owner of each byte of simulated memory, per arena
+    private OwnerMap[] memory;
+    // The free memory (PID 0) of each arena, indexed by block size
+    private FreeList[] freeMemory;
+    // The blocks held by each process
+    // Lists are plain ArrayLists, only read or changed within ConcurrentHashMap.compute,
+    // as blocks of different arenas are added and removed under different locks
+    private ConcurrentHashMap<Integer, List<Block>> table;
+    // The bytes and blocks held by each process, kept up to date alongside the table
+    private ConcurrentHashMap<Integer, Usage> usage;
+    // The placement strategy used by allocate
+    private volatile Fit fit;
+    // Recently freed blocks of common sizes, per arena (null == no caching)
+    private SlabCache[] slabs;
+    // The fragmentation above which an arena is compacted (1 == never)
+    private volatile double compactionThreshold = 1.0;
+    // The arena compacted by the next compactStep
+    private AtomicInteger nextCompaction = new AtomicInteger();
+    // The background compaction thread (null == not running)
+    private Thread compactor;
+    // One lock per arena
+    private Semaphore2 semaphore;
+    // The allocation requests waiting for memory
+    // Its lock is held while admitting, and is always taken before any arena lock
+    private WaitQueue waiting = new WaitQueue();
+    // Told the PID of each waiting request once it is allocated (may be null)
+    private volatile IntConsumer admitListener;
+    // The allocation and free counts and times (ns), lock wait times, and fragmentation
+    private Metrics metrics = new Metrics();
+    private LongAdder allocations, failures, frees;
+    private Histogram allocateTime, freeTime, batchSize;
+    // The thread applying the asynchronous requests (null == not started), and its queue of requests
+    // not yet applied; each writer has its own queue, so a stopped writer only drops its own requests
+    private Thread writer;
+    private LinkedBlockingQueue<AsyncRequest> requests;
+    // The future of each waiting asynchronous request
+    private ConcurrentHashMap<AllocationRequest, CompletableFuture<Boolean>> futures = new ConcurrentHashMap<>();
+
+    /**
+     * Strategies for choosing the free block an allocation is placed in
+     * BEST_FIT and WORST_FIT are O(log n); FIRST_FIT is O(distinct free block sizes
+     * large enough), as the free list is indexed by size, not by address
+     */
+    public static enum Fit {
+        FIRST_FIT,
+        BEST_FIT,
+        WORST_FIT;
+    }
+
+    /**
+     * An asynchronous allocation or free, waiting to be applied
+     */
+    private static class AsyncRequest {
+        private int pid;
+        // The bytes requested (-1 == free)
+        private int size;
+        private CompletableFuture<Boolean> future = new CompletableFuture<>();
+        // Whether the request was met, once applied
+        private boolean result;
+
+        private AsyncRequest(int pid, int size) {
+            this.pid = pid;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Ways of storing the owner of each byte of memory
+     * DENSE uses one int per byte; INTERVAL stores runs of bytes
+     */
+    public static enum Layout {
+        DENSE,
+        INTERVAL;
+    }
 
     public MemoryManager(int maxBytes) throws InterruptedException {
-        // Acquire the semaphore lock
-        semaphore.waitSem();
+        this(maxBytes, Fit.BEST_FIT);
+    }
+
+    public MemoryManager(int maxBytes, Fit fit) throws InterruptedException {
+        this(maxBytes, fit, Layout.DENSE);
+    }
+
+    public MemoryManager(int maxBytes, Fit fit, Layout layout) throws InterruptedException {
+        this(maxBytes, fit, layout, 1);
+    }
+
+    /**
+     * Creates a memory manager using a given placement strategy and memory layout
+     * @param maxBytes The number of bytes of memory
+     * @param fit The placement strategy
+     * @param layout The byte ownership representation
+     * @param arenas The number of independently locked arenas memory is split into
+     * @throws InterruptedException
+     */
+    public MemoryManager(int maxBytes, Fit fit, Layout layout, int arenas) throws InterruptedException {
+        // Every arena needs at least one byte
+        arenas = Math.max(1, Math.min(arenas, maxBytes));
+
+        this.fit = fit;
+        this.size = maxBytes;
+        this.arenaSize = (maxBytes + arenas - 1) / arenas;
 
         // Initialize the memory
-        memory = new int[maxBytes];
+        memory = new OwnerMap[arenas];
+        freeMemory = new FreeList[arenas];
+
+        for (int i=0; i<arenas; i++) {
+            // The range of memory covered by the arena
+            int start = i * arenaSize;
+            int end = Math.min(maxBytes, start + arenaSize);
+
+            memory[i] = (layout == Layout.INTERVAL) ? new IntervalOwnerMap(start, end) : new DenseOwnerMap(start, end);
+
+            // Record the initial free memory (PID == 0)
+            freeMemory[i] = new FreeList();
+            freeMemory[i].add(new Block(start, end));
+        }
 
         // Initialize the HashMap<PID, List<Block>>
-        table = new HashMap<>();
+        table = new ConcurrentHashMap<>();
+        usage = new ConcurrentHashMap<>();
 
-        // Add the free memory (PID == 0)
-        table.putIfAbsent(0, new ArrayList<Block>());
-        // Record the initial free memory
-        table.get(0).add(new Block(0, maxBytes));
+        slabs = new SlabCache[arenas];
+        semaphore = new Semaphore2(arenas, 1, false);
 
-        // Release the semaphore lock
-        semaphore.signal();
+        allocations = metrics.counter("memory.allocations");
+        failures = metrics.counter("memory.failures");
+        frees = metrics.counter("memory.frees");
+        allocateTime = metrics.histogram("memory.allocate_ns");
+        freeTime = metrics.histogram("memory.free_ns");
+        batchSize = metrics.histogram("memory.batch_size");
+        semaphore.setWaitHistogram(metrics.histogram("memory.lock_wait_ns"));
+        metrics.gauge("memory.waiting", () -> waiting.size());
+        metrics.gauge("memory.fragmentation", () -> {
+            try {
+                return getFragmentation();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Double.NaN;
+            }
+        });
+    }
+
+    /**
+     * Get the allocation, free, lock wait and fragmentation metrics
+     * @return The metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
     }
 
     /**
      * Get the total memory held by a process (PID 0 == free memory)
-     * For proper practices, should only be called within a function holding the semaphore lock
+     * The free memory total is only exact while holding every arena's lock
+     * Both totals are kept as memory is allocated and freed, so nothing is summed per block
      * @param pid The process ID
      * @return Number of bytes held by the process
      */
     private int getTotalMemory(int pid) {
         int total = 0;
 
-        // Add the size of each block
-        for (Block block : table.get(pid)) {
-            total += block.size();
+        // Each free list keeps a running total
+        if (pid == 0) {
+            for (FreeList arena : freeMemory) {
+                total += arena.getTotal();
+            }
+            return total;
+        }
+
+        // Each process keeps a running total
+        Usage held = usage.get(pid);
+        return held == null ? 0 : held.getBytes();
+    }
+
+    /**
+     * Change the placement strategy used by future allocations
+     * @param fit First-Fit, Best-Fit, or Worst-Fit
+     */
+    public void setFit(Fit fit) {
+        this.fit = fit;
+    }
+
+    /**
+     * Put a slab cache in front of each arena's free list, or remove them
+     * @param sizes The allocation sizes to cache, or null to stop caching
+     * @param capacity The most blocks cached per size class, per arena
+     * @param maxIdle The most cache operations a block stays cached without being used
+     * @throws InterruptedException
+     */
+    public void setSlabCache(int[] sizes, int capacity, long maxIdle) throws InterruptedException {
+        for (int i=0; i<slabs.length; i++) {
+            // Acquire the arena's lock
+            semaphore.waitSem(i);
+
+            // Return the blocks held by the previous cache
+            clearSlabs(i);
+
+            slabs[i] = (sizes == null) ? null : new SlabCache(sizes, capacity, maxIdle);
+
+            // Release the arena's lock
+            semaphore.signal(i);
+        }
+    }
+
+    /**
+     * Return an arena's cached blocks to its free list
+     * For proper practices should only be called within a function holding the arena's lock
+     * @param arena The arena index
+     */
+    private void clearSlabs(int arena) {
+        if (slabs[arena] == null) {
+            return;
+        }
+
+        ArrayList<Block> released = new ArrayList<>();
+        slabs[arena].clear(released);
+
+        for (Block block : released) {
+            freeMemory[arena].release(block);
+        }
+    }
+
+    /**
+     * Get the number of allocations served by a slab cache size class, across arenas
+     * @param size The size class
+     * @return The hit count
+     */
+    public long getSlabHits(int size) {
+        long hits = 0;
+        for (SlabCache cache : slabs) {
+            hits += (cache == null) ? 0 : cache.getHits(size);
+        }
+        return hits;
+    }
+
+    /**
+     * Get the number of allocations of a slab cache size class that weren't cached, across arenas
+     * @param size The size class
+     * @return The miss count
+     */
+    public long getSlabMisses(int size) {
+        long misses = 0;
+        for (SlabCache cache : slabs) {
+            misses += (cache == null) ? 0 : cache.getMisses(size);
+        }
+        return misses;
+    }
+
+    /**
+     * Display the slab cache statistics of each arena
+     */
+    public void printSlabStats() {
+        for (int i=0; i<slabs.length; i++) {
+            if (slabs[i] != null) {
+                System.out.println("Arena " + i + ":");
+                slabs[i].printStats();
+            }
         }
+    }
 
-        // Return the sum
-        return total;
+    /**
+     * Get the arena holding a byte of memory
+     * @param address The byte index
+     * @return The arena index
+     */
+    private int arenaOf(int address) {
+        return address / arenaSize;
     }
 
     /**
      * Point a block of memory to a process
-     * For proper practices should only be called within a function holding the semaphore lock
+     * For proper practices should only be called within a function holding the arena's lock
      * @param pid The process ID
      * @param block The memory block
      */
     private void setBlock(int pid, Block block) {
-        // Go through each byte in the block
-        for (int i=block.start(); i<block.end(); i++) {
-            // Set the byte held by PID
-            memory[i] = pid;
-        }
+        // Set each byte in the block held by PID
+        memory[arenaOf(block.start())].setOwner(block, pid);
     }
 
     /**
@@ -71,244 +328,1177 @@ public class MemoryManager {
      * a free region and store the PID in that region
      * @param pid The process ID
      * @param size The processes memory size
-     * @throws InterruptedException 
+     * @throws InterruptedException
      */
+    @Override
     public boolean allocate(int pid, int size) throws InterruptedException {
-        // The allocation request is too large
-        if (size > memory.length) {
-            System.out.println("Cannot fullfill allocation request: Memory Index Out of Bounds");
+        long start = System.nanoTime();
+        boolean allocated = allocate(pid, size, true);
+
+        allocateTime.record(System.nanoTime() - start);
+        (allocated ? allocations : failures).increment();
+        return allocated;
+    }
+
+    /**
+     * Allocate memory to a process
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @param report Whether to display running out of memory
+     * @return True if the memory was allocated; False, otherwise
+     * @throws InterruptedException
+     */
+    private boolean allocate(int pid, int size, boolean report) throws InterruptedException {
+        // The allocation request is empty, or too large
+        if (size <= 0 || size > this.size) {
+            Log.println("Cannot fullfill allocation request: Memory Index Out of Bounds");
             return false;
         }
 
-        // Acquire the semaphore lock
-        semaphore.waitSem();
+        // Start with the arena belonging to this thread, so threads spread out
+        int arenas = freeMemory.length;
+        int home = (int) (Thread.currentThread().getId() % arenas);
+
+        // Look for an arena with a single block large enough, then for one with enough free
+        // memory in total, so an allocation is only scattered when no arena has a large block
+        // Only one lock is held at a time
+        for (int pass=0; pass<2; pass++) {
+            for (int i=0; i<arenas; i++) {
+                int arena = (home + i) % arenas;
+
+                // Acquire the arena's lock
+                semaphore.waitSem(arena);
+
+                try {
+                    if (allocateWithin(arena, pid, size, pass == 1)) {
+                        return true;
+                    }
+                }
+                finally {
+                    // Release the arena's lock
+                    semaphore.signal(arena);
+                }
+            }
+        }
+
+        // No single arena has enough free memory
+        // Acquire every lock, in order, and spread the allocation across arenas
+        lockAll();
+
+        boolean allocated = false;
+
+        try {
+            allocated = allocateAcross(pid, size);
+        }
+        finally {
+            unlockAll();
+        }
+
+        // Displayed once every lock is released
+        if (!allocated && report) {
+            Log.println("Failed to allocate memory: Out of Memory");
+        }
+
+        return allocated;
+    }
+
+    /**
+     * Allocate memory within one arena, from its slab cache or free list
+     * For proper practices should only be called within a function holding the arena's lock
+     * @param arena The arena index
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @param scatter True to allow splitting the allocation across the arena's free blocks;
+     *                False, to only use a single block
+     * @return True if the arena could hold the whole allocation; False, otherwise
+     */
+    private boolean allocateWithin(int arena, int pid, int size, boolean scatter) {
+        // Reuse a cached block of exactly this size
+        Block cached = (slabs[arena] == null) ? null : slabs[arena].take(size);
+
+        if (cached != null) {
+            hold(pid, cached);
+            return true;
+        }
+
+        // A single free block can hold the whole allocation
+        Block fitBlock = freeMemory[arena].find(size, fit);
+
+        if (fitBlock != null) {
+            take(arena, pid, fitBlock, size);
+            return true;
+        }
+
+        // The arena can hold the whole allocation, split across its free blocks
+        if (scatter && freeMemory[arena].getTotal() >= size) {
+            allocateIn(arena, pid, size);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Spread an allocation across arenas, returning the cached blocks first if needed
+     * For proper practices should only be called within a function holding every arena's lock
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @return True if the memory was allocated; False, if there isn't enough free memory
+     */
+    private boolean allocateAcross(int pid, int size) {
+        int arenas = freeMemory.length;
+
+        // Return the cached blocks before giving up
+        if (getTotalMemory(0) < size) {
+            for (int i=0; i<arenas; i++) {
+                clearSlabs(i);
+            }
+        }
 
         // There isn't enough available memory to allocate
         if (getTotalMemory(0) < size) {
-            System.out.println("Failed to allocate memory: Out of Memory");
+            return false;
+        }
+
+        // The number of bytes still to be allocated
+        int remaining = size;
 
-            // Release the semaphore lock
-            semaphore.signal();
+        for (int i=0; i<arenas && remaining > 0; i++) {
+            // Take as much of the arena as is needed
+            remaining -= allocateIn(i, pid, Math.min(remaining, freeMemory[i].getTotal()));
+        }
+
+        return true;
+    }
+
+    /**
+     * Allocate memory to a process, or queue the request until enough memory is freed
+     * Once a queued request is allocated, the admit listener is told its PID
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @return True if the memory was allocated now; False, if it is waiting or too large
+     * @throws InterruptedException
+     */
+    public boolean allocateOrWait(int pid, int size) throws InterruptedException {
+        // The allocation request could never be met
+        if (size <= 0 || size > this.size) {
+            Log.println("Cannot fullfill allocation request: Memory Index Out of Bounds");
             return false;
         }
 
-        // Get all blocks of free memory
-        ArrayList<Block> freeMemory = table.get(0);
-        
-        // Create the allocation list for the process
-        table.putIfAbsent(pid, new ArrayList<Block>());
-        
-        // Store the best fitting Block, for this allocation
-        // Initially none
-        Block bestFit = null;
-
-        // Go through each block of free memory
-        for (Block freeBlock : freeMemory) {
-            // The block is large enough, and is the smallest block yet found
-            if (freeBlock.size() >= size && (bestFit == null || freeBlock.size() < bestFit.size())) {
-                // Save the smallest available block
-                bestFit = freeBlock;
-            }
-        }
-        
-        // No single best-fit block was found
-        // Find however many blocks, from largest to smallest needed to allocate memory
-        if (bestFit == null) {
-            // Sort the free memory by size; largest blocks to smallest blocks
-            freeMemory.sort((a, b) -> Integer.compare(b.size(), a.size()));
-            
-            // The number of blocks that will be taken from available memory to allocate the requested size
-            // Sublist of freeMemory from index 0 to 'blocks - 1'
-            int blocks = 0;
-            // The combined size of the blocks to be taken
-            int totalSize = 0;
-
-            // Iterate in order, by largest to smallest block
-            for (Block block : freeMemory) {
-                // Increment number of blocks by 1
-                blocks += 1;
-
-                // Increment total size by block size
-                totalSize += block.size();
-
-                // The memory allocation has been found
-                if (totalSize >= size) {
-                    break;
+        synchronized (waiting) {
+            // Don't pass requests already waiting
+            if (waiting.size() == 0 && allocate(pid, size, false)) {
+                return true;
+            }
+
+            waiting.add(pid, size);
+        }
+
+        // The request may be first in line
+        admitWaiting();
+
+        return !waiting.isWaiting(pid) && hasAllocation(pid);
+    }
+
+    /**
+     * Allocate the waiting requests, in the order of the wait policy,
+     * until the next request doesn't fit
+     * @throws InterruptedException
+     */
+    private void admitWaiting() throws InterruptedException {
+        ArrayList<CompletableFuture<Boolean>> admitted = new ArrayList<>();
+
+        synchronized (waiting) {
+            AllocationRequest request = waiting.peek();
+
+            while (request != null && allocate(request.getPid(), request.getSize(), false)) {
+                waiting.admitted(request);
+
+                // An asynchronous request is completed once the lock is released
+                CompletableFuture<Boolean> future = futures.remove(request);
+                if (future != null) {
+                    admitted.add(future);
+                }
+
+                IntConsumer listener = admitListener;
+                if (listener != null) {
+                    listener.accept(request.getPid());
                 }
+
+                request = waiting.peek();
             }
-            
-            // Remove the last block
-            Block lastBlock = freeMemory.remove(blocks - 1);
-            
-            // Allocate all blocks that leave no holes
-            for (int i=0; i<blocks - 1; i++) {
-                // Remove the block from available memory
-                Block block = freeMemory.remove(i);
-                // Add the block to the processes held memory
-                table.get(pid).add(block);
-                // Change the memory list to reflect the held memory block
-                setBlock(pid, block);
-            }
-
-            // There is a hole left over
-            if (totalSize - size > 0) {
-                // Add the hole back to the free memory
-                Block hole = new Block(lastBlock.end() - (totalSize - size), lastBlock.end());
-                freeMemory.add(hole);
-            }
-
-            // The final block to be allocated to the process
-            Block lastAllocation = new Block(lastBlock.start(), lastBlock.end() - (totalSize - size));
-            
-            // Add the last allocation block to the held memory
-            table.get(pid).add(lastAllocation);
+        }
 
-            // Change the memory list to reflect the held memory block
-            setBlock(pid, lastAllocation);
+        for (CompletableFuture<Boolean> future : admitted) {
+            future.complete(true);
+        }
+    }
 
-            semaphore.signal();
+    /**
+     * Remove a processes waiting requests, failing those made asynchronously
+     * @param pid The process ID
+     * @return True if any request was removed; False, otherwise
+     */
+    private boolean cancelWaiting(int pid) {
+        List<AllocationRequest> cancelled = waiting.cancel(pid);
 
-            return true;
+        for (AllocationRequest request : cancelled) {
+            CompletableFuture<Boolean> future = futures.remove(request);
+            if (future != null) {
+                future.complete(false);
+            }
+        }
+
+        return !cancelled.isEmpty();
+    }
+
+    /**
+     * Allocate memory to a process without waiting for the locks
+     * The request is applied in order with the other asynchronous requests; if there isn't
+     * enough free memory it waits, like allocateOrWait, until other processes free memory
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @return Completed with True once the memory is allocated; False, if it is empty or too large
+     *         or the process frees its memory while waiting
+     */
+    public CompletableFuture<Boolean> allocateAsync(int pid, int size) {
+        // An empty request could never be met, and would be taken for a free
+        if (size <= 0) {
+            failures.increment();
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return submit(new AsyncRequest(pid, size));
+    }
+
+    /**
+     * Free the memory of a process without waiting for the locks
+     * It is applied in order with the other asynchronous requests
+     * @param pid The process ID
+     * @return Completed once the memory is freed
+     */
+    public CompletableFuture<Void> freeAsync(int pid) {
+        return submit(new AsyncRequest(pid, -1)).thenApply(freed -> null);
+    }
+
+    /**
+     * Queue an asynchronous request, starting the writer thread if needed
+     * @param request The request
+     * @return The requests future
+     */
+    private CompletableFuture<Boolean> submit(AsyncRequest request) {
+        // Check the input
+        if (request.size < -1) {
+            throw new IllegalArgumentException("Invalid allocation size");
+        }
+
+        synchronized (this) {
+            if (writer == null) {
+                LinkedBlockingQueue<AsyncRequest> queue = new LinkedBlockingQueue<>();
+                requests = queue;
+                writer = new Thread(() -> writeRequests(queue), "MemoryManager writer");
+                writer.setDaemon(true);
+                writer.start();
+            }
+
+            // Queued while holding the lock, so it can't reach a writer already stopped
+            requests.add(request);
+        }
+
+        return request.future;
+    }
+
+    /**
+     * Stop the writer thread, failing the asynchronous requests it hasn't applied
+     * A later request starts a new writer
+     */
+    public synchronized void stopWriter() {
+        if (writer != null) {
+            writer.interrupt();
+            writer = null;
+        }
+    }
+
+    /**
+     * Apply the queued asynchronous requests, as many at a time as are waiting
+     * @param requests This writer's queue
+     */
+    private void writeRequests(LinkedBlockingQueue<AsyncRequest> requests) {
+        ArrayList<AsyncRequest> batch = new ArrayList<>(BATCH);
+
+        try {
+            while (true) {
+                // Wait for a request, then take every other one queued behind it
+                batch.add(requests.take());
+                requests.drainTo(batch, BATCH - 1);
+
+                try {
+                    applyBatch(batch);
+                }
+                catch (RuntimeException e) {
+                    // Don't leave the callers waiting forever
+                    for (AsyncRequest request : batch) {
+                        request.future.completeExceptionally(e);
+                    }
+                }
+
+                batch.clear();
+            }
+        }
+        catch (InterruptedException e) {
+            // The writer was stopped, so the requests still queued will never be applied
+            ArrayList<AsyncRequest> dropped = new ArrayList<>(batch);
+            requests.drainTo(dropped);
+
+            for (AsyncRequest request : dropped) {
+                request.future.completeExceptionally(e);
+            }
+
+            if (!dropped.isEmpty()) {
+                Log.println("Memory writer stopped: " + dropped.size() + " requests dropped");
+            }
+        }
+    }
+
+    /**
+     * Acquire every arena's lock, in order
+     * If interrupted part way, the locks already acquired are released before rethrowing,
+     * so an interrupted caller never leaves an arena locked
+     * @throws InterruptedException
+     */
+    private void lockAll() throws InterruptedException {
+        int locked = 0;
+
+        try {
+            while (locked < freeMemory.length) {
+                semaphore.waitSem(locked);
+                locked++;
+            }
+        }
+        finally {
+            // Release only the locks acquired, if not all were
+            if (locked < freeMemory.length) {
+                for (int i=0; i<locked; i++) {
+                    semaphore.signal(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Release every arena's lock
+     * For proper practices should only be called within a function holding every arena's lock
+     */
+    private void unlockAll() {
+        for (int i=0; i<freeMemory.length; i++) {
+            semaphore.signal(i);
+        }
+    }
+
+    /**
+     * Allocate memory within one arena if any can hold it, otherwise across arenas
+     * For proper practices should only be called within a function holding every arena's lock
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @return True if the memory was allocated; False, if there isn't enough free memory
+     */
+    private boolean allocateLocked(int pid, int size) {
+        int arenas = freeMemory.length;
+
+        // Start with an arena chosen by PID, so processes spread out
+        // Prefer an arena with a single block large enough, as allocate does
+        for (int pass=0; pass<2; pass++) {
+            for (int i=0; i<arenas; i++) {
+                if (allocateWithin(Math.floorMod(pid + i, arenas), pid, size, pass == 1)) {
+                    return true;
+                }
+            }
+        }
+
+        return allocateAcross(pid, size);
+    }
+
+    /**
+     * Apply a batch of asynchronous requests in order, holding every arena's lock once
+     * Requests that don't fit wait in the queue, and are completed when admitted
+     * @param batch The requests
+     * @throws InterruptedException
+     */
+    private void applyBatch(List<AsyncRequest> batch) throws InterruptedException {
+        // The requests completed once the locks are released, and whether memory was freed
+        ArrayList<AsyncRequest> applied = new ArrayList<>(batch.size());
+        ArrayList<CompletableFuture<Boolean>> cancelled = new ArrayList<>();
+        boolean freed = false;
+        // The processes whose memory was freed, displayed once the locks are released
+        ArrayList<Integer> terminated = new ArrayList<>();
+
+        synchronized (waiting) {
+            lockAll();
+
+            try {
+                for (AsyncRequest request : batch) {
+                    int pid = request.pid;
+
+                    long start = System.nanoTime();
+
+                    // Free the processes memory, and fail its waiting requests
+                    if (request.size < 0) {
+                        List<AllocationRequest> waiters = waiting.cancel(pid);
+                        for (AllocationRequest waiter : waiters) {
+                            CompletableFuture<Boolean> future = futures.remove(waiter);
+                            if (future != null) {
+                                cancelled.add(future);
+                            }
+                        }
+
+                        // A cancelled request may have been holding up the requests behind it
+                        if (!waiters.isEmpty()) {
+                            freed = true;
+                        }
+
+                        TreeSet<Integer> heldArenas = arenasOf(pid);
+                        if (!heldArenas.isEmpty()) {
+                            for (int arena : heldArenas) {
+                                freeWithin(arena, pid);
+                            }
+                            freeTime.record(System.nanoTime() - start);
+                            frees.increment();
+                            terminated.add(pid);
+                            freed = true;
+                        }
+
+                        request.result = true;
+                        applied.add(request);
+                    }
+                    // The allocation request could never be met
+                    else if (request.size > size) {
+                        allocateTime.record(System.nanoTime() - start);
+                        failures.increment();
+                        request.result = false;
+                        applied.add(request);
+                    }
+                    // Allocate, unless requests are already waiting
+                    else if (waiting.size() == 0 && allocateLocked(pid, request.size)) {
+                        allocateTime.record(System.nanoTime() - start);
+                        allocations.increment();
+                        request.result = true;
+                        applied.add(request);
+                    }
+                    // Wait for memory to be freed
+                    else {
+                        futures.put(waiting.add(pid, request.size), request.future);
+                    }
+                }
+            }
+            finally {
+                unlockAll();
+            }
+        }
+
+        batchSize.record(batch.size());
+
+        if (Log.isEnabled()) {
+            for (int pid : terminated) {
+                Log.println("Terminated process: PID " + pid);
+            }
+        }
+
+        // Completed once the locks are released, as completing runs the callers' callbacks
+        for (AsyncRequest request : applied) {
+            request.future.complete(request.result);
+        }
+        for (CompletableFuture<Boolean> future : cancelled) {
+            future.complete(false);
         }
 
-        // Remove the best-fit block from the table
+        // Give the freed memory to the waiting requests
+        if (freed) {
+            admitWaiting();
+        }
+    }
+
+    /**
+     * Change the order waiting requests are admitted in
+     * @param policy The admission policy
+     */
+    public void setWaitPolicy(WaitQueue.Policy policy) {
+        waiting.setPolicy(policy);
+    }
+
+    /**
+     * Set the listener told the PID of each waiting request once it is allocated
+     * It is called while admitting, so mustn't allocate or free memory itself
+     * @param listener The listener (null == none)
+     */
+    public void setAdmitListener(IntConsumer listener) {
+        this.admitListener = listener;
+    }
+
+    /**
+     * Check if a process has an allocation request waiting
+     * @param pid The process ID
+     * @return True if the process is waiting; False, otherwise
+     */
+    public boolean isWaiting(int pid) {
+        return waiting.isWaiting(pid);
+    }
+
+    /**
+     * Display the waiting allocation requests, oldest first
+     */
+    public void printWaiting() {
+        waiting.print();
+    }
+
+    /**
+     * Allocate memory from a single arena, which must have enough free memory
+     * For proper practices should only be called within a function holding the arena's lock
+     * @param arena The arena index
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @return The number of bytes allocated
+     */
+    private int allocateIn(int arena, int pid, int size) {
+        // Find the block fitting this allocation, using the placement strategy
+        Block fitBlock = freeMemory[arena].find(size, fit);
+
+        // The allocation would be scattered across a fragmented arena, so compact it first
+        if (fitBlock == null && getFragmentation(arena) > compactionThreshold) {
+            compactArena(arena);
+            fitBlock = freeMemory[arena].find(size, fit);
+        }
+
+        // Allocate the fitting block to the process
+        if (fitBlock != null) {
+            return take(arena, pid, fitBlock, size);
+        }
+
+        // No single fitting block was found
+        // Take however many blocks, from largest to smallest needed to allocate memory
+        int remaining = size;
+
+        while (remaining > 0) {
+            // Take the largest block of free memory
+            Block block = freeMemory[arena].largest();
+
+            // Allocate the whole block, or as much of it as is needed
+            remaining -= take(arena, pid, block, Math.min(remaining, block.size()));
+        }
+
+        return size;
+    }
+
+    /**
+     * Allocate the start of a free block to a process, returning any hole left over
+     * For proper practices should only be called within a function holding the arena's lock
+     * @param arena The arena index
+     * @param pid The process ID
+     * @param freeBlock The free block to take from
+     * @param size The number of bytes to take
+     * @return The number of bytes allocated
+     */
+    private int take(int arena, int pid, Block freeBlock, int size) {
+        // Remove the free block from the free list
         // because we will break it into two blocks
-        table.get(0).remove(bestFit);
+        freeMemory[arena].remove(freeBlock);
 
         // Create the smallest block to hold the allocation.
-        Block allocated = new Block(bestFit.start(), bestFit.start() + size);
+        Block allocated = new Block(freeBlock.start(), freeBlock.start() + size);
 
+        // Give the allocated block to the process
+        hold(pid, allocated);
+
+        // The free block will have a hole of free memory left over
+        if (freeBlock.size() > size) {
+            // Add the hole back into the free list
+            freeMemory[arena].add(new Block(freeBlock.start() + size, freeBlock.end()));
+        }
+
+        return size;
+    }
+
+    /**
+     * Add a block to the process's held memory
+     * For proper practices should only be called within a function holding the block's arena lock
+     * @param pid The process ID
+     * @param block The memory block
+     */
+    private void hold(int pid, Block block) {
         // Add the allocated block to the table for the process
-        table.get(pid).add(allocated);
+        table.compute(pid, (key, heldMemory) -> {
+            if (heldMemory == null) {
+                heldMemory = new ArrayList<>();
+            }
+            heldMemory.add(block);
+
+            // Count the block within compute, so free can't remove the process in between
+            usage.merge(pid, new Usage(block.size(), 1), Usage::add);
+            return heldMemory;
+        });
 
         // Change the memory list to reflect the held memory block
-        setBlock(pid, allocated);
-        
-        // The best fit block will have a hole of free memory left over
-        if (bestFit.size() > size) {
-            Block hole = new Block(bestFit.start() + size, bestFit.end());
-            // Add the hole back into the table
-            table.get(0).add(hole);
-        }
+        setBlock(pid, block);
+    }
 
-        // Release the semaphore lock
-        semaphore.signal();
+    @Override
+    public void free(int pid) throws InterruptedException {
+        free(pid, true);
+    }
 
-        return true;
+    @Override
+    public void release(int pid) throws InterruptedException {
+        free(pid, false);
     }
 
     /**
      * Release memory held by a process
-     * @param pid
-     * @throws InterruptedException 
+     * @param pid The process ID
+     * @param report Whether to display the process terminating
+     * @throws InterruptedException
      */
-    public void free(int pid) throws InterruptedException {
-        // Acquire the semaphore lock
-        semaphore.waitSem();
+    private void free(int pid, boolean report) throws InterruptedException {
+        long start = System.nanoTime();
 
-        // Get the free memory allocation list
-        ArrayList<Block> freeMemory = table.get(0);
+        // The process no longer needs the memory it is waiting for
+        boolean cancelled = cancelWaiting(pid);
 
-        // Insert allocation list, if none exists
-        table.putIfAbsent(pid, new ArrayList<Block>());
-        // Get the processes memory allocation list
-        ArrayList<Block> heldMemory = table.get(pid);
+        // Get the arenas holding the processes memory
+        TreeSet<Integer> heldArenas = arenasOf(pid);
 
         // The process isn't holding any memory
-        if (heldMemory.size() == 0) {
-            // Release the semaphore lock
-            semaphore.signal();
+        if (heldArenas.isEmpty()) {
+            // The cancelled request may have been holding up the smaller requests behind it
+            if (cancelled) {
+                admitWaiting();
+            }
             return;
         }
 
-        // Remove each memory block from the process 
-        while (heldMemory.size() > 0) {
-            // Sort the free memory so each block is in order
-            // i.e. (0, 5), (5, 8), (8, 12)
-            freeMemory.sort((a, b) -> Integer.compare(a.start(), b.start()));
+        // Release the blocks of one arena at a time, while holding its lock
+        for (int arena : heldArenas) {
+            // Acquire the arena's lock
+            semaphore.waitSem(arena);
+
+            freeWithin(arena, pid);
+
+            // Release the arena's lock
+            semaphore.signal(arena);
+        }
+
+        freeTime.record(System.nanoTime() - start);
+        frees.increment();
 
-            // A block of memory (no-longer) held by the process
-            Block heldBlock = heldMemory.remove(0);
+        if (report) {
+            Log.println("Terminated process: PID " + pid);
+        }
+
+        // Give the freed memory to the waiting requests
+        admitWaiting();
+    }
+
+    /**
+     * Get the arenas holding a processes blocks
+     * @param pid The process ID
+     * @return The arena indexes, in order (empty == holding no memory)
+     */
+    private TreeSet<Integer> arenasOf(int pid) {
+        TreeSet<Integer> arenas = new TreeSet<>();
+
+        // Read within computeIfPresent, as another arena may be adding to the list
+        table.computeIfPresent(pid, (key, heldMemory) -> {
+            for (Block heldBlock : heldMemory) {
+                arenas.add(arenaOf(heldBlock.start()));
+            }
+            return heldMemory;
+        });
+
+        return arenas;
+    }
+
+    /**
+     * Release a processes blocks within one arena
+     * For proper practices should only be called within a function holding the arena's lock
+     * @param arena The arena index
+     * @param pid The process ID
+     */
+    private void freeWithin(int arena, int pid) {
+        // Take the processes blocks within this arena, and update its usage, in one step
+        ArrayList<Block> freed = new ArrayList<>();
+        table.computeIfPresent(pid, (key, held) -> {
+            // One pass, so freeing stays linear in the number of blocks
+            held.removeIf(heldBlock -> arenaOf(heldBlock.start()) == arena && freed.add(heldBlock));
 
+            // Subtract the freed blocks from the processes usage
+            int bytes = 0;
+            for (Block heldBlock : freed) {
+                bytes += heldBlock.size();
+            }
+            usage.merge(pid, new Usage(-bytes, -freed.size()), Usage::add);
+
+            // Remove the process once it holds nothing
+            if (held.isEmpty()) {
+                usage.remove(pid);
+                return null;
+            }
+            return held;
+        });
+
+        // The blocks going back to the free list
+        ArrayList<Block> released = new ArrayList<>();
+
+        for (Block heldBlock : freed) {
             // Change the memory list to reflect the held memory as freed
             setBlock(0, heldBlock);
-            
-            // Go through each block of free memory and attempt to merge with released held memory
-            for (int j=0; j<freeMemory.size() - 1; j++) {
-                // A block of free memory
-                Block freeBlock = freeMemory.get(j);
-
-                // No remaining free blocks can be connected to the held block
-                if (freeBlock.start() > heldBlock.start()) {
-                    break;
+
+            // Keep blocks of common sizes in the cache
+            if (slabs[arena] != null) {
+                slabs[arena].offer(heldBlock, released);
+            }
+            else {
+                released.add(heldBlock);
+            }
+        }
+
+        // Add each block into the free memory list, merged with its neighbours
+        for (Block block : released) {
+            freeMemory[arena].release(block);
+        }
+    }
+
+    /**
+     * Get how fragmented the free memory is, as the fraction of free bytes
+     * outside the largest free block (0 == a single free block)
+     * @return The fragmentation, from 0 up to 1
+     * @throws InterruptedException
+     */
+    public double getFragmentation() throws InterruptedException {
+        int total = 0;
+        int largest = 0;
+
+        for (int i=0; i<freeMemory.length; i++) {
+            // Acquire the arena's lock
+            semaphore.waitSem(i);
+
+            total += freeMemory[i].getTotal();
+            if (freeMemory[i].largest() != null) {
+                largest = Math.max(largest, freeMemory[i].largest().size());
+            }
+
+            // Release the arena's lock
+            semaphore.signal(i);
+        }
+
+        return total == 0 ? 0 : 1 - (double) largest / total;
+    }
+
+    /**
+     * Get how fragmented an arena's free memory is
+     * For proper practices should only be called within a function holding the arena's lock
+     * @param arena The arena index
+     * @return The fragmentation, from 0 up to 1
+     */
+    private double getFragmentation(int arena) {
+        int total = freeMemory[arena].getTotal();
+        return total == 0 ? 0 : 1 - (double) freeMemory[arena].largest().size() / total;
+    }
+
+    /**
+     * Set the fragmentation above which an arena is compacted automatically,
+     * when an allocation would otherwise be scattered, or by the background compactor
+     * @param threshold The fragmentation threshold (1 == never)
+     */
+    public void setCompactionThreshold(double threshold) {
+        this.compactionThreshold = threshold;
+    }
+
+    /**
+     * Compact the next arena, only holding that arena's lock
+     * Calling this once per arena compacts all of memory
+     * @throws InterruptedException
+     */
+    public void compactStep() throws InterruptedException {
+        int arena = Math.floorMod(nextCompaction.getAndIncrement(), freeMemory.length);
+
+        // Acquire the arena's lock
+        semaphore.waitSem(arena);
+
+        compactArena(arena);
+
+        // Release the arena's lock
+        semaphore.signal(arena);
+    }
+
+    /**
+     * Compact every arena, one at a time
+     * @throws InterruptedException
+     */
+    public void compact() throws InterruptedException {
+        for (int i=0; i<freeMemory.length; i++) {
+            compactStep();
+        }
+    }
+
+    /**
+     * Slide an arena's held blocks together, one block per process in PID order,
+     * leaving a single free block at the end of the arena
+     * For proper practices should only be called within a function holding the arena's lock
+     * @param arena The arena index
+     */
+    private void compactArena(int arena) {
+        // Cached blocks are free memory too, and the free list is rebuilt
+        if (slabs[arena] != null) {
+            slabs[arena].clear(new ArrayList<>());
+        }
+
+        // The bytes each process holds within the arena, by PID
+        // Each list is read within computeIfPresent, as other arenas may be changing it
+        TreeMap<Integer, Integer> held = new TreeMap<>();
+        for (int pid : table.keySet()) {
+            table.computeIfPresent(pid, (key, heldMemory) -> {
+                for (Block block : heldMemory) {
+                    if (arenaOf(block.start()) == arena) {
+                        held.merge(key, block.size(), Integer::sum);
+                    }
                 }
+                return heldMemory;
+            });
+        }
+
+        int start = memory[arena].start();
+        int end = memory[arena].end();
+
+        // Everything is free, until each processes block is placed
+        memory[arena].setOwner(new Block(start, end), 0);
+
+        // The start of the next packed block
+        int cursor = start;
+
+        for (Map.Entry<Integer, Integer> entry : held.entrySet()) {
+            int pid = entry.getKey();
+            Block packed = new Block(cursor, cursor + entry.getValue());
+
+            // Replace the processes blocks within the arena with the packed block
+            table.computeIfPresent(pid, (key, heldMemory) -> {
+                int before = heldMemory.size();
+                heldMemory.removeIf(block -> arenaOf(block.start()) == arena);
+                int removed = before - heldMemory.size();
+                heldMemory.add(packed);
+
+                usage.merge(pid, new Usage(0, 1 - removed), Usage::add);
+                return heldMemory;
+            });
+
+            // Change the memory list to reflect the held memory block
+            setBlock(pid, packed);
+
+            cursor = packed.end();
+        }
+
+        // The remaining memory is a single free block
+        freeMemory[arena] = new FreeList();
+        freeMemory[arena].add(new Block(cursor, end));
+    }
 
-                // The held memory block is connected to a free memory block
-                if (freeBlock.end() == heldBlock.start() || heldBlock.end() == freeBlock.start()) {
-                    // Merge the free block and the held block
-                    Block mergedBlock = new Block(Math.min(freeBlock.start(), heldBlock.start()), Math.max(heldBlock.end(), freeBlock.end()));
-                    
-                    // Replace the free memory block with the two blocks merged
-                    freeMemory.set(j, mergedBlock);
-
-                    // Set held memory block to null, to indicate freed
-                    heldBlock = null;
-                    break;
+    /**
+     * Start compacting fragmented arenas in the background
+     * @param intervalMillis The time between checking each arena's fragmentation
+     */
+    public synchronized void startCompactor(long intervalMillis) {
+        // The compactor is already running
+        if (compactor != null) {
+            return;
+        }
+
+        compactor = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(intervalMillis);
+
+                    // Compact each fragmented arena, holding one lock at a time
+                    for (int i=0; i<freeMemory.length; i++) {
+                        semaphore.waitSem(i);
+
+                        if (getFragmentation(i) > compactionThreshold) {
+                            compactArena(i);
+                        }
+
+                        semaphore.signal(i);
+                    }
                 }
             }
+            catch (InterruptedException e) {
+                // The compactor was stopped
+            }
+        });
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    /**
+     * Stop the background compactor
+     */
+    public synchronized void stopCompactor() {
+        if (compactor != null) {
+            compactor.interrupt();
+            compactor = null;
+        }
+    }
 
-            // The held memory could not be merged with a free memory block
-            if (heldBlock != null) {
-                // Add the held block into the free memory list
-                freeMemory.add(heldBlock);
+    /**
+     * Write the free blocks of each arena, the blocks held by each process, and the
+     * waiting requests to a snapshot
+     * Cached blocks are returned to the free lists first, so they are saved as free memory
+     * @param snapshot The snapshot being written
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void save(Snapshot snapshot) throws IOException, InterruptedException {
+        int arenas = freeMemory.length;
+
+        synchronized (waiting) {
+            // Acquire every lock, so nothing changes while saving
+            lockAll();
+
+            try {
+                snapshot.putInt(size);
+                snapshot.putInt(arenas);
+
+                // The free blocks of each arena, in address order
+                for (int i=0; i<arenas; i++) {
+                    clearSlabs(i);
+
+                    ArrayList<Block> blocks = freeMemory[i].blocks();
+                    snapshot.putInt(blocks.size());
+                    for (Block block : blocks) {
+                        snapshot.putInt(block.start());
+                        snapshot.putInt(block.end());
+                    }
+                }
+
+                // The blocks held by each process
+                snapshot.putInt(table.size());
+                for (Map.Entry<Integer, List<Block>> entry : table.entrySet()) {
+                    snapshot.putInt(entry.getKey());
+                    snapshot.putInt(entry.getValue().size());
+                    for (Block block : entry.getValue()) {
+                        snapshot.putInt(block.start());
+                        snapshot.putInt(block.end());
+                    }
+                }
+
+                // The waiting requests, oldest first
+                List<AllocationRequest> requests = waiting.requests();
+                snapshot.putInt(requests.size());
+                for (AllocationRequest request : requests) {
+                    snapshot.putInt(request.getPid());
+                    snapshot.putInt(request.getSize());
+                }
+            }
+            finally {
+                unlockAll();
             }
         }
+    }
 
-        System.out.println("Terminated process: PID " + pid);
+    /**
+     * Replace every arena, held block and waiting request with those of a snapshot
+     * Only blocks are read, so this takes time proportional to the number of blocks
+     * (plus the bytes held, for the dense layout)
+     * @param snapshot The snapshot being read
+     * @throws IOException If the snapshot is for a different memory size
+     * @throws InterruptedException
+     */
+    public void restore(Snapshot snapshot) throws IOException, InterruptedException {
+        int arenas = freeMemory.length;
+        // The futures of replaced waiting requests
+        ArrayList<CompletableFuture<Boolean>> replaced = new ArrayList<>();
 
-        // Release the semaphore lock
-        semaphore.signal();
+        synchronized (waiting) {
+            // Acquire every lock, so nothing changes while restoring
+            lockAll();
+
+            try {
+                // Check the snapshot matches before changing anything
+                if (snapshot.getInt() != size || snapshot.getInt() != arenas) {
+                    throw new IOException("Snapshot is for a different memory size or number of arenas");
+                }
+
+                // Start each arena over, all free, with the snapshot's free list
+                for (int i=0; i<arenas; i++) {
+                    int start = memory[i].start();
+                    int end = memory[i].end();
+
+                    memory[i] = (memory[i] instanceof IntervalOwnerMap) ? new IntervalOwnerMap(start, end) : new DenseOwnerMap(start, end);
+                    freeMemory[i] = new FreeList();
+
+                    int count = snapshot.getInt();
+                    for (int j=0; j<count; j++) {
+                        freeMemory[i].add(new Block(snapshot.getInt(), snapshot.getInt()));
+                    }
+
+                    // Cached blocks belonged to the replaced free list
+                    if (slabs[i] != null) {
+                        slabs[i].clear(new ArrayList<>());
+                    }
+                }
+
+                // Give each process its blocks
+                table.clear();
+                usage.clear();
+
+                int processes = snapshot.getInt();
+                for (int i=0; i<processes; i++) {
+                    int pid = snapshot.getInt();
+                    int count = snapshot.getInt();
+                    int bytes = 0;
+
+                    ArrayList<Block> held = new ArrayList<>(count);
+                    for (int j=0; j<count; j++) {
+                        Block block = new Block(snapshot.getInt(), snapshot.getInt());
+                        setBlock(pid, block);
+                        held.add(block);
+                        bytes += block.size();
+                    }
+
+                    table.put(pid, held);
+                    usage.put(pid, new Usage(bytes, count));
+                }
+
+                // Queue the waiting requests again, in their original order
+                // Asynchronous callers of the replaced requests are told they failed, once unlocked
+                waiting.clear();
+                replaced.addAll(futures.values());
+                futures.clear();
+
+                int queued = snapshot.getInt();
+                for (int i=0; i<queued; i++) {
+                    waiting.add(snapshot.getInt(), snapshot.getInt());
+                }
+            }
+            finally {
+                unlockAll();
+            }
+        }
+
+        for (CompletableFuture<Boolean> future : replaced) {
+            future.complete(false);
+        }
     }
 
     /**
      * Check if a process has memory allocated to it
+     * Doesn't need any lock, since a process only has a list while holding memory
      * @param pid The process ID
      * @return True if a process has allocated memory; False, otherwise
-     * @throws InterruptedException 
      */
-    public boolean hasAllocation(int pid) throws InterruptedException {
+    @Override
+    public boolean hasAllocation(int pid) {
+        return table.containsKey(pid);
+    }
+
+    /**
+     * Get the memory held by every process
+     * Doesn't need any lock, since each PID's usage is replaced as a whole
+     * @return A snapshot of each PID's usage
+     */
+    @Override
+    public Map<Integer, Usage> getUsage() {
+        return new HashMap<>(usage);
+    }
+
+    /**
+     * Get the process owning a byte of memory
+     * @param address The byte index
+     * @return The process ID (0 == free)
+     * @throws InterruptedException
+     */
+    @Override
+    public int getOwner(int address) throws InterruptedException {
+        int arena = arenaOf(address);
+
         try {
-            // Acquire the semaphore lock
-            semaphore.waitSem();
+            // Acquire the arena's lock
+            semaphore.waitSem(arena);
 
-            // Return the allocation comparison
-            return getTotalMemory(pid) > 0;
+            return memory[arena].getOwner(address);
         }
-        catch (Exception e) {
-            return false;
-        }   
         finally {
-            // Release the semaphore lock
-            semaphore.signal();
+            // Release the arena's lock
+            semaphore.signal(arena);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of arenas memory is split into
+     * @return The arena count
+     */
+    public int getArenas() {
+        return memory.length;
+    }
+
+    /**
+     * Get an arena's free blocks, holding its lock
+     * @param arena The arena index
+     * @return A copy of the free blocks, in address order
+     * @throws InterruptedException
+     */
+    public List<Block> getFreeBlocks(int arena) throws InterruptedException {
+        // Check the input
+        if (arena < 0 || arena >= memory.length) {
+            throw new IllegalArgumentException("Invalid arena");
+        }
+
+        // Acquire the arena's lock
+        semaphore.waitSem(arena);
+
+        try {
+            return freeMemory[arena].blocks();
+        }
+        finally {
+            // Release the arena's lock
+            semaphore.signal(arena);
         }
     }
 
+    /**
+     * Get the runs of bytes with the same owner, holding one arena's lock at a time
+     * Runs are joined across arenas, so memory split into arenas looks the same as one arena
+     * @return The layout, with free memory as PID 0
+     * @throws InterruptedException
+     */
+    @Override
+    public List<Segment> getSegments() throws InterruptedException {
+        ArrayList<Segment> segments = new ArrayList<>();
+
+        for (int i=0; i<memory.length; i++) {
+            // Acquire the arena's lock
+            semaphore.waitSem(i);
+
+            MemoryView.addRuns(segments, memory[i]);
+
+            // Release the arena's lock
+            semaphore.signal(i);
+        }
+
+        return segments;
+    }
+
     /**
      * Display the current memory layout
      */
+    @Override
     public void printMemory() {
-        // The number of bytes of memory
-        int size = memory.length;
-        int columns = size / MemoryManager.ROWS;
-
-        // Go through each byte, displayed in rows
-        for (int i=0; i<MemoryManager.ROWS; i++) {
-            // Go through each byte within the row
-            for (int j=i * columns; j<i * columns + columns; j++) {
-                System.out.print(" " + memory[j]);
-            }
-            // Print the new line
-            System.out.println();
+        try {
+            new MemoryView().printMap(this);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+}
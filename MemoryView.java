@@ -0,0 +1,319 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Displays the memory layout of an allocator, from its runs of bytes with the same owner,
+ * so it takes time proportional to the number of runs and the size of the display, never
+ * the size of memory. Each frame is built up first and printed with a single write.
+ *
+ * Small memories are shown byte by byte, as a grid of PIDs. Larger memories are shown as a
+ * fixed-size map, where each character is the owner of most of the bytes in that cell.
+ * Owners past the last symbol share one mark, and are listed by PID instead of reusing a symbol.
+ * The view remembers the last layout it showed, so a diff only shows the runs that changed.
+ */
+public class MemoryView {
+    // Number of rows to be displayed
+    private static int ROWS = 10;
+    // The most bytes shown byte by byte, and the most runs or changes listed
+    private static int MAX_GRID = 400;
+    private static int MAX_LINES = 50;
+    // The characters marking each owner on the map ('.' == free)
+    private static String SYMBOLS = "123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    // The character marking every owner once the symbols run out
+    private static char OTHERS = '#';
+
+    // The characters per row of the map
+    private int width;
+    // The layout shown last (null == nothing shown yet)
+    private List<Segment> last;
+
+    public MemoryView() {
+        this(64);
+    }
+
+    /**
+     * Creates a memory view
+     * @param width The characters per row of the map
+     */
+    public MemoryView(int width) {
+        // Check the input
+        if (width < 1) {
+            throw new IllegalArgumentException("Invalid width");
+        }
+
+        this.width = width;
+    }
+
+    /**
+     * Add a run of bytes to a layout, joining it to the previous run if they have the same owner
+     * @param segments The layout, in address order
+     * @param start The start index
+     * @param end The end index (exclusive)
+     * @param owner The process ID (0 == free)
+     */
+    public static void addRun(List<Segment> segments, int start, int end, int owner) {
+        // Ignore empty runs
+        if (start >= end) {
+            return;
+        }
+
+        Segment previous = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+
+        if (previous != null && previous.owner() == owner && previous.end() == start) {
+            segments.set(segments.size() - 1, new Segment(previous.start(), end, owner));
+        }
+        else {
+            segments.add(new Segment(start, end, owner));
+        }
+    }
+
+    /**
+     * Add every run of an owner map to a layout
+     * For proper practices should only be called while holding the map's lock
+     * @param segments The layout, in address order
+     * @param map The owner map
+     */
+    public static void addRuns(List<Segment> segments, OwnerMap map) {
+        for (int address=map.start(); address<map.end(); ) {
+            int end = map.getRunEnd(address);
+            addRun(segments, address, end, map.getOwner(address));
+            address = end;
+        }
+    }
+
+    /**
+     * Display memory as a grid of PIDs, or as a map if it is too large
+     * @param memory The allocator
+     * @throws InterruptedException
+     */
+    public void printMap(Allocator memory) throws InterruptedException {
+        List<Segment> segments = memory.getSegments();
+        int size = memory.getSize();
+        StringBuilder frame = new StringBuilder();
+
+        if (size <= MAX_GRID) {
+            grid(frame, segments, size);
+        }
+        else {
+            map(frame, segments, size);
+        }
+
+        System.out.print(frame);
+        last = segments;
+    }
+
+    /**
+     * Build a grid of the owner of each byte, in rows
+     * @param frame The frame being built
+     * @param segments The layout
+     * @param size The number of bytes of memory
+     */
+    private void grid(StringBuilder frame, List<Segment> segments, int size) {
+        int columns = (size + ROWS - 1) / ROWS;
+        int next = 0;
+
+        // Go through each byte, displayed in rows, including a shorter last row
+        for (Segment segment : segments) {
+            for (int i=segment.start(); i<segment.end(); i++) {
+                frame.append(' ').append(segment.owner());
+
+                if (++next % columns == 0 || next == size) {
+                    frame.append('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Build a map, each character showing the owner of most of a cell's bytes
+     * @param frame The frame being built
+     * @param segments The layout
+     * @param size The number of bytes of memory
+     */
+    private void map(StringBuilder frame, List<Segment> segments, int size) {
+        int cells = ROWS * width;
+        long perCell = (size + cells - 1) / cells;
+        // The symbol of each owner shown, in the order first seen
+        LinkedHashMap<Integer, Character> legend = new LinkedHashMap<>();
+
+        frame.append("Memory: ").append(size).append(" bytes, ").append(perCell).append(" per cell\n");
+
+        int index = 0;
+        for (int cell=0; cell<cells; cell++) {
+            long start = cell * perCell;
+            long end = Math.min(size, start + perCell);
+
+            // Past the end of memory
+            if (start >= size) {
+                break;
+            }
+
+            // The owner holding the most bytes of the cell
+            int owner = 0, most = -1;
+            while (index < segments.size() && segments.get(index).start() < end) {
+                Segment segment = segments.get(index);
+                long bytes = Math.min(end, segment.end()) - Math.max(start, segment.start());
+
+                if (bytes > most) {
+                    owner = segment.owner();
+                    most = (int) bytes;
+                }
+
+                // The segment carries on into the next cell
+                if (segment.end() > end) {
+                    break;
+                }
+                index++;
+            }
+
+            // Symbols aren't reused, so a symbol always means the same process
+            frame.append(owner == 0 ? '.' : legend.computeIfAbsent(owner,
+                    pid -> legend.size() < SYMBOLS.length() ? SYMBOLS.charAt(legend.size()) : OTHERS));
+
+            if ((cell + 1) % width == 0) {
+                frame.append('\n');
+            }
+        }
+
+        if (frame.charAt(frame.length() - 1) != '\n') {
+            frame.append('\n');
+        }
+
+        // Say which process each symbol is, up to a line's worth
+        int shown = 0;
+        ArrayList<Integer> others = new ArrayList<>();
+        for (Map.Entry<Integer, Character> entry : legend.entrySet()) {
+            if (entry.getValue() == OTHERS) {
+                others.add(entry.getKey());
+            }
+            else if (shown < MAX_LINES) {
+                frame.append(entry.getValue()).append(" = PID ").append(entry.getKey()).append('\n');
+                shown++;
+            }
+        }
+
+        if (legend.size() - others.size() > shown) {
+            frame.append("... and ").append(legend.size() - others.size() - shown).append(" more processes\n");
+        }
+
+        // The processes sharing the mark, by PID, up to a limit
+        if (!others.isEmpty()) {
+            frame.append(OTHERS).append(" = ").append(others.size()).append(" processes past the symbols, PIDs");
+            for (int i=0; i<others.size(); i++) {
+                if (i == MAX_LINES) {
+                    frame.append(" ...");
+                    break;
+                }
+                frame.append(' ').append(others.get(i));
+            }
+            frame.append('\n');
+        }
+    }
+
+    /**
+     * Display each run of bytes and its owner, up to a limit
+     * @param memory The allocator
+     * @throws InterruptedException
+     */
+    public void printSegments(Allocator memory) throws InterruptedException {
+        List<Segment> segments = memory.getSegments();
+        StringBuilder frame = new StringBuilder();
+
+        for (int i=0; i<segments.size(); i++) {
+            if (i == MAX_LINES) {
+                frame.append("... and ").append(segments.size() - MAX_LINES).append(" more segments\n");
+                break;
+            }
+            line(frame, segments.get(i)).append(owner(segments.get(i).owner())).append('\n');
+        }
+
+        System.out.print(frame);
+        last = segments;
+    }
+
+    /**
+     * Display the runs of bytes whose owner changed since memory was last shown
+     * The first diff shows every run
+     * @param memory The allocator
+     * @throws InterruptedException
+     */
+    public void printDiff(Allocator memory) throws InterruptedException {
+        // Nothing to compare against
+        if (last == null) {
+            printSegments(memory);
+            return;
+        }
+
+        List<Segment> segments = memory.getSegments();
+        ArrayList<Segment> before = new ArrayList<>();
+        ArrayList<Segment> after = new ArrayList<>();
+
+        // Walk both layouts together, one piece between their run boundaries at a time
+        int i = 0, j = 0;
+        while (i < last.size() && j < segments.size()) {
+            Segment old = last.get(i);
+            Segment now = segments.get(j);
+            int start = Math.max(old.start(), now.start());
+            int end = Math.min(old.end(), now.end());
+
+            // The owner of the piece changed, so join it to the previous change where it can be
+            if (old.owner() != now.owner()) {
+                Segment previous = after.isEmpty() ? null : after.get(after.size() - 1);
+
+                if (previous != null && previous.end() == start && previous.owner() == now.owner()
+                        && before.get(before.size() - 1).owner() == old.owner()) {
+                    after.set(after.size() - 1, new Segment(previous.start(), end, now.owner()));
+                }
+                else {
+                    before.add(new Segment(start, end, old.owner()));
+                    after.add(new Segment(start, end, now.owner()));
+                }
+            }
+
+            if (old.end() == end) {
+                i++;
+            }
+            if (now.end() == end) {
+                j++;
+            }
+        }
+
+        StringBuilder frame = new StringBuilder();
+
+        if (after.isEmpty()) {
+            frame.append("No changes\n");
+        }
+
+        for (int k=0; k<after.size(); k++) {
+            if (k == MAX_LINES) {
+                frame.append("... and ").append(after.size() - MAX_LINES).append(" more changes\n");
+                break;
+            }
+            line(frame, after.get(k)).append(owner(before.get(k).owner())).append(" -> ").append(owner(after.get(k).owner())).append('\n');
+        }
+
+        System.out.print(frame);
+        last = segments;
+    }
+
+    /**
+     * Start a line with the bytes a run covers
+     * @param frame The frame being built
+     * @param segment The run
+     * @return The frame
+     */
+    private static StringBuilder line(StringBuilder frame, Segment segment) {
+        return frame.append(segment.start()).append('-').append(segment.end() - 1).append(": ");
+    }
+
+    /**
+     * Describe the owner of a run
+     * @param pid The process ID
+     * @return "free", or the PID
+     */
+    private static String owner(int pid) {
+        return pid == 0 ? "free" : "PID " + pid;
+    }
+}
@@ -0,0 +1,102 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Named counters, histograms and gauges of a manager. Counters and histograms are
+ * lock-free, so they can be updated on every allocation; managers look each one up
+ * once and keep it, so updating one never touches the map. Gauges are only read
+ * when the metrics are displayed.
+ */
+public class Metrics implements MetricsMXBean {
+    private ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Get a counter, creating it if needed
+     * @param name The counter name
+     * @return The counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Get a histogram, creating it if needed
+     * @param name The histogram name
+     * @return The histogram
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Add a value that is worked out when it is read
+     * @param name The gauge name
+     * @param gauge Works out the value
+     */
+    public void gauge(String name, DoubleSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        TreeMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getGauges() {
+        TreeMap<String, Double> values = new TreeMap<>();
+        for (Map.Entry<String, DoubleSupplier> entry : gauges.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().getAsDouble());
+        }
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            values.put(entry.getKey() + ".count", (double) histogram.getCount());
+            values.put(entry.getKey() + ".mean", histogram.getMean());
+            values.put(entry.getKey() + ".p50", (double) histogram.getPercentile(0.5));
+            values.put(entry.getKey() + ".p99", (double) histogram.getPercentile(0.99));
+            values.put(entry.getKey() + ".max", (double) histogram.getMax());
+        }
+        return values;
+    }
+
+    /**
+     * Make the metrics readable through JMX, i.e. with jconsole
+     * @param name The manager name, i.e. "memory"
+     */
+    public void register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("os:type=Metrics,name=" + name));
+        }
+        catch (JMException e) {
+            Log.println("Couldn't register " + name + " metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Display every counter, histogram and gauge
+     */
+    public void print() {
+        for (Map.Entry<String, Long> entry : getCounters().entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+        }
+        for (Map.Entry<String, DoubleSupplier> entry : new TreeMap<>(gauges).entrySet()) {
+            System.out.println(entry.getKey() + ": " + String.format("%.3f", entry.getValue().getAsDouble()));
+        }
+    }
+}
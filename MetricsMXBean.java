@@ -0,0 +1,18 @@
+import java.util.Map;
+
+/**
+ * The metrics of a manager, as seen through JMX.
+ */
+public interface MetricsMXBean {
+    /**
+     * Get every counter
+     * @return The value of each counter, by name
+     */
+    public Map<String, Long> getCounters();
+
+    /**
+     * Get every gauge, and the count, mean, p50, p99 and max of every histogram
+     * @return The value of each, by name
+     */
+    public Map<String, Double> getGauges();
+}
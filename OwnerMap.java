@@ -0,0 +1,39 @@
+/**
+ * Records which process owns each byte of simulated memory (PID 0 == free),
+ * for the range of memory from start() up to end().
+ */
+public interface OwnerMap {
+    /**
+     * Point a block of memory to a process
+     * @param block The memory block
+     * @param pid The process ID
+     */
+    public void setOwner(Block block, int pid);
+
+    /**
+     * Get the process owning a byte of memory
+     * @param address The byte index
+     * @return The process ID (0 == free)
+     */
+    public int getOwner(int address);
+
+    /**
+     * Get the end of the run of bytes, sharing an owner, that contains an address
+     * i.e. with bytes [1, 1, 2], the run containing index 0 ends at index 2
+     * @param address The byte index
+     * @return The end index (exclusive)
+     */
+    public int getRunEnd(int address);
+
+    /**
+     * Get the first byte covered by the map
+     * @return The start index
+     */
+    public int start();
+
+    /**
+     * Get the end of the bytes covered by the map
+     * @return The end index (exclusive)
+     */
+    public int end();
+}
@@ -1,8 +1,23 @@
 public class PCB {
     private int pid;
     private String name;
-    private State state; // READY, RUNNING, BLOCKED
+    private State state; // READY, RUNNING, BLOCKED, TERMINATED
     private boolean active = false;
+    // Scheduling priority (lower runs first)
+    private int priority = 0;
+    // Total CPU time needed, and CPU time still needed (ms)
+    private int burst, remaining;
+    // The time the process was created, and finished (ms)
+    private long arrival, finish = -1;
+    // The multi-level feedback queue level
+    private int level = 0;
+    // CPU time between I/O requests (0 == no I/O), and the time each I/O takes (ms)
+    private int ioInterval = 0, ioTime = 0;
+    // CPU time since the last I/O request, and total time spent on I/O (ms)
+    private int sinceIo = 0;
+    private long ioWaited = 0;
+    // The only core the process may run on (-1 == any), and the core it last ran on
+    private int affinity = -1, core = 0;
 
     /**
      * Creates a process control block for a given process
@@ -16,10 +31,38 @@ public class PCB {
         this.state = state;
     }
 
+    /**
+     * Creates a process control block with scheduling information
+     * @param pid The process ID
+     * @param name The process name
+     * @param state The process state
+     * @param priority The scheduling priority (lower runs first)
+     * @param burst The total CPU time needed (ms)
+     * @param arrival The time the process was created (ms)
+     */
+    public PCB(int pid, String name, State state, int priority, int burst, long arrival) {
+        this(pid, name, state);
+        this.priority = priority;
+        this.burst = burst;
+        this.remaining = burst;
+        this.arrival = arrival;
+    }
+
+    /**
+     * Make the process request I/O after every 'interval' ms of CPU time
+     * @param interval CPU time between I/O requests (ms)
+     * @param time The time each I/O takes (ms)
+     */
+    public void setIo(int interval, int time) {
+        this.ioInterval = interval;
+        this.ioTime = time;
+    }
+
     public static enum State {
         READY,
         RUNNING,
-        BLOCKED;
+        BLOCKED,
+        TERMINATED;
     }
 
     public int getPid() {
@@ -38,6 +81,91 @@ public class PCB {
         this.state = state;
     }
 
+    public int getPriority() {
+        return this.priority;
+    }
+
+    public int getBurst() {
+        return this.burst;
+    }
+
+    public int getRemaining() {
+        return this.remaining;
+    }
+
+    public void setRemaining(int remaining) {
+        this.remaining = remaining;
+    }
+
+    public long getArrival() {
+        return this.arrival;
+    }
+
+    public long getFinish() {
+        return this.finish;
+    }
+
+    public void setFinish(long finish) {
+        this.finish = finish;
+    }
+
+    public int getLevel() {
+        return this.level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public int getIoInterval() {
+        return this.ioInterval;
+    }
+
+    public int getIoTime() {
+        return this.ioTime;
+    }
+
+    public int getSinceIo() {
+        return this.sinceIo;
+    }
+
+    public void setSinceIo(int sinceIo) {
+        this.sinceIo = sinceIo;
+    }
+
+    public long getIoWaited() {
+        return this.ioWaited;
+    }
+
+    public void setIoWaited(long ioWaited) {
+        this.ioWaited = ioWaited;
+    }
+
+    public int getAffinity() {
+        return this.affinity;
+    }
+
+    public void setAffinity(int affinity) {
+        this.affinity = affinity;
+    }
+
+    /**
+     * Check if the process may run on a core
+     * @param core The core index
+     * @return True if the process has no affinity, or an affinity for the core; False, otherwise
+     */
+    public boolean canRunOn(int core) {
+        return this.affinity == -1 || this.affinity == core;
+    }
+
+    public int getCore() {
+        return this.core;
+    }
+
+    public void setCore(int core) {
+        this.core = core;
+    }
+
     public boolean isActive() {
         return this.active;
     }
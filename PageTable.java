@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * Maps a processes virtual pages to physical frames.
+ * i.e. frames = [4, 1] means virtual page 0 is in frame 4, and page 1 in frame 1
+ *
+ * A page that isn't in memory has a negative entry: NOT_LOADED if it was never
+ * touched, or a swap slot encoded by PagedMemoryManager.
+ */
+public class PageTable {
+    // The entry of a page that hasn't been loaded yet
+    public static final int NOT_LOADED = -1;
+
+    // The frame holding each virtual page
+    private int[] frames;
+    // The number of pages mapped
+    private int pages = 0;
+    // The number of page faults taken by, and pages evicted from, the process
+    private long faults = 0, evictions = 0;
+
+    public PageTable() {
+        frames = new int[4];
+    }
+
+    /**
+     * Map the next virtual page to a frame
+     * @param frame The frame index, or NOT_LOADED
+     * @return The virtual page number
+     */
+    public int add(int frame) {
+        // Grow the table once it is full
+        if (pages == frames.length) {
+            frames = Arrays.copyOf(frames, pages * 2);
+        }
+
+        frames[pages] = frame;
+        return pages++;
+    }
+
+    /**
+     * Get the frame holding a virtual page
+     * @param page The virtual page number
+     * @return The frame index, or a negative entry if the page isn't in memory
+     */
+    public int getFrame(int page) {
+        // Check the input
+        if (page < 0 || page >= pages) {
+            throw new IllegalArgumentException("Invalid page number");
+        }
+
+        return frames[page];
+    }
+
+    /**
+     * Change the frame holding a virtual page
+     * @param page The virtual page number
+     * @param frame The frame index, or a negative entry if the page isn't in memory
+     */
+    public void setFrame(int page, int frame) {
+        frames[page] = frame;
+    }
+
+    public void addFault() {
+        this.faults++;
+    }
+
+    public void addEviction() {
+        this.evictions++;
+    }
+
+    public long getFaults() {
+        return this.faults;
+    }
+
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Get the number of pages mapped
+     * @return The page count
+     */
+    public int size() {
+        return this.pages;
+    }
+}
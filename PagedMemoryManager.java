@@ -0,0 +1,474 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocates memory in fixed-size pages. Each process has a page table mapping its
+ * virtual pages to physical frames, so an allocation never needs contiguous memory
+ * and there is no external fragmentation.
+ *
+ * Free frames are kept on a stack, so taking or returning a frame is O(1).
+ * Address translation goes through a small TLB before the page table.
+ *
+ * With a swap area, memory can be overcommitted: pages that don't fit in a frame are
+ * loaded on their first access, evicting another page to swap if no frame is free.
+ */
+public class PagedMemoryManager implements Allocator {
+    // The number of bytes of memory
+    private int size;
+    // The number of bytes per page
+    private int pageSize;
+    // The process holding each frame (0 == free), and the virtual page it holds
+    private int[] frameOwner;
+    private int[] framePage;
+    // The free frames, with the next free frame on top
+    private int[] freeFrames;
+    private int freeCount;
+    // The free swap slots, with the next free slot on top
+    private int[] freeSlots;
+    private int freeSlotCount;
+    // The number of pages allocated, in memory or not
+    private int committed = 0;
+    // Chooses the page to evict when no frame is free
+    private ReplacementPolicy policy;
+    // The page table of each process
+    private HashMap<Integer, PageTable> table;
+    // The bytes and pages held by each process
+    private HashMap<Integer, Usage> usage;
+    // Caches recent address translations
+    private Tlb tlb;
+    // The page faults and evictions of every process so far
+    private long faults = 0, evictions = 0;
+    private Semaphore2 semaphore = new Semaphore2();
+
+    /**
+     * Page replacement policies
+     */
+    public static enum Replacement {
+        FIFO,
+        CLOCK,
+        LRU;
+    }
+
+    public PagedMemoryManager(int maxBytes, int pageSize) {
+        this(maxBytes, pageSize, 16);
+    }
+
+    public PagedMemoryManager(int maxBytes, int pageSize, int tlbEntries) {
+        this(maxBytes, pageSize, tlbEntries, 0, Replacement.LRU);
+    }
+
+    /**
+     * Creates a paged memory manager
+     * @param maxBytes The number of bytes of memory
+     * @param pageSize The number of bytes per page
+     * @param tlbEntries The number of TLB entries
+     * @param swapPages The number of pages the swap area holds (0 == no overcommit)
+     * @param replacement The page replacement policy
+     */
+    public PagedMemoryManager(int maxBytes, int pageSize, int tlbEntries, int swapPages, Replacement replacement) {
+        // Check the input, as a page fault needs at least one frame to load into
+        if (pageSize < 1 || maxBytes < pageSize) {
+            throw new IllegalArgumentException("Memory must hold at least one page");
+        }
+        if (swapPages < 0) {
+            throw new IllegalArgumentException("Invalid number of swap pages");
+        }
+
+        this.size = maxBytes;
+        this.pageSize = pageSize;
+        this.table = new HashMap<>();
+        this.usage = new HashMap<>();
+        this.tlb = new Tlb(tlbEntries);
+
+        // Any bytes after the last whole page aren't used
+        int frames = maxBytes / pageSize;
+        frameOwner = new int[frames];
+        framePage = new int[frames];
+        freeFrames = new int[frames];
+
+        // Push the frames, so the lowest frame is taken first
+        for (int i=0; i<frames; i++) {
+            freeFrames[i] = frames - 1 - i;
+        }
+        freeCount = frames;
+
+        // Push the swap slots the same way
+        freeSlots = new int[swapPages];
+        for (int i=0; i<swapPages; i++) {
+            freeSlots[i] = swapPages - 1 - i;
+        }
+        freeSlotCount = swapPages;
+
+        switch (replacement) {
+            case FIFO:
+                policy = new FifoPolicy(frames);
+                break;
+            case CLOCK:
+                policy = new ClockPolicy(frames);
+                break;
+            default:
+                policy = new LruPolicy(frames);
+                break;
+        }
+    }
+
+    /**
+     * Encode a swap slot as a page table entry
+     * @param slot The swap slot
+     * @return The negative page table entry
+     */
+    private static int swapEntry(int slot) {
+        return -2 - slot;
+    }
+
+    /**
+     * Map enough pages to hold the allocation, at the end of the processes virtual memory
+     * Pages are given a free frame if there is one, otherwise they are loaded on first access
+     * @param pid The process ID
+     * @param size The processes memory size
+     * @throws InterruptedException
+     */
+    @Override
+    public boolean allocate(int pid, int size) throws InterruptedException {
+        // The allocation request is empty
+        if (size <= 0) {
+            Log.println("Cannot fullfill allocation request: Memory Index Out of Bounds");
+            return false;
+        }
+
+        // The number of pages needed
+        int pages = (int) (((long) size + pageSize - 1) / pageSize);
+
+        // The allocation request is too large
+        if (pages > frameOwner.length + freeSlots.length) {
+            Log.println("Cannot fullfill allocation request: Memory Index Out of Bounds");
+            return false;
+        }
+
+        // Acquire the semaphore lock
+        semaphore.waitSem();
+
+        boolean allocated = false;
+
+        try {
+            // There isn't enough memory and swap to back the pages
+            if (committed + pages > frameOwner.length + freeSlots.length) {
+                return false;
+            }
+
+            // Map each page to a free frame, or leave it to be loaded on demand
+            table.putIfAbsent(pid, new PageTable());
+            PageTable pageTable = table.get(pid);
+
+            for (int i=0; i<pages; i++) {
+                if (freeCount > 0) {
+                    int frame = freeFrames[--freeCount];
+                    load(pid, pageTable.add(frame), frame);
+                }
+                else {
+                    pageTable.add(PageTable.NOT_LOADED);
+                }
+            }
+
+            committed += pages;
+            usage.merge(pid, new Usage(pages * pageSize, pages), Usage::add);
+            allocated = true;
+            return true;
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+
+            // Displayed once the lock is released
+            if (!allocated) {
+                Log.println("Failed to allocate memory: Out of Memory");
+            }
+        }
+    }
+
+    /**
+     * Record a page as held in a frame
+     * For proper practices should only be called within a function holding the semaphore lock
+     * @param pid The process ID
+     * @param page The virtual page number
+     * @param frame The frame index
+     */
+    private void load(int pid, int page, int frame) {
+        frameOwner[frame] = pid;
+        framePage[frame] = page;
+        policy.loaded(frame);
+    }
+
+    @Override
+    public void free(int pid) throws InterruptedException {
+        free(pid, true);
+    }
+
+    @Override
+    public void release(int pid) throws InterruptedException {
+        free(pid, false);
+    }
+
+    /**
+     * Release memory held by a process
+     * @param pid The process ID
+     * @param report Whether to display the process terminating
+     * @throws InterruptedException
+     */
+    private void free(int pid, boolean report) throws InterruptedException {
+        // Acquire the semaphore lock
+        semaphore.waitSem();
+
+        try {
+            // Take the processes page table
+            PageTable pages = table.remove(pid);
+            usage.remove(pid);
+
+            // The process isn't holding any memory
+            if (pages == null) {
+                return;
+            }
+
+            // Return each frame and swap slot
+            for (int i=0; i<pages.size(); i++) {
+                int entry = pages.getFrame(i);
+
+                // The page is in memory
+                if (entry >= 0) {
+                    frameOwner[entry] = 0;
+                    policy.removed(entry);
+                    freeFrames[freeCount++] = entry;
+                }
+                // The page is in swap
+                else if (entry != PageTable.NOT_LOADED) {
+                    freeSlots[freeSlotCount++] = swapEntry(entry);
+                }
+            }
+
+            committed -= pages.size();
+
+            // The processes translations are no longer valid
+            tlb.invalidate(pid);
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+        }
+
+        if (report) {
+            Log.println("Terminated process: PID " + pid);
+        }
+    }
+
+    /**
+     * Translate a processes virtual address to a physical address,
+     * loading the page into memory if it isn't there
+     * @param pid The process ID
+     * @param address The virtual address
+     * @return The physical address
+     * @throws InterruptedException
+     */
+    public int translate(int pid, int address) throws InterruptedException {
+        int page = address / pageSize;
+
+        // Acquire the semaphore lock
+        semaphore.waitSem();
+
+        try {
+            // Check the TLB first
+            int frame = tlb.lookup(pid, page);
+
+            // Otherwise walk the page table, and remember the translation
+            if (frame == -1) {
+                PageTable pages = table.get(pid);
+
+                // Check the input
+                if (pages == null) {
+                    throw new IllegalArgumentException("Process has no memory");
+                }
+
+                frame = pages.getFrame(page);
+
+                // The page isn't in memory
+                if (frame < 0) {
+                    frame = fault(pid, pages, page);
+                }
+
+                tlb.insert(pid, page, frame);
+            }
+
+            // Tell the replacement policy about every access
+            policy.accessed(frame);
+
+            return frame * pageSize + address % pageSize;
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+        }
+    }
+
+    /**
+     * Handle a page fault, loading a page into a free frame, or the frame of an evicted page
+     * For proper practices should only be called within a function holding the semaphore lock
+     * @param pid The process ID
+     * @param pages The processes page table
+     * @param page The virtual page number
+     * @return The frame now holding the page
+     */
+    private int fault(int pid, PageTable pages, int page) {
+        pages.addFault();
+        faults++;
+
+        // Release the swap slot the page was in, before another page may need it
+        int entry = pages.getFrame(page);
+        if (entry != PageTable.NOT_LOADED) {
+            freeSlots[freeSlotCount++] = swapEntry(entry);
+        }
+
+        int frame;
+
+        // Use a free frame
+        if (freeCount > 0) {
+            frame = freeFrames[--freeCount];
+        }
+        // Otherwise evict a page to swap
+        else {
+            frame = policy.victim();
+
+            int owner = frameOwner[frame];
+            int victimPage = framePage[frame];
+            PageTable victimPages = table.get(owner);
+
+            // Overcommit never exceeds memory plus swap, so a slot is always free
+            victimPages.setFrame(victimPage, swapEntry(freeSlots[--freeSlotCount]));
+            victimPages.addEviction();
+            evictions++;
+
+            // The evicted page's translation is no longer valid
+            tlb.invalidate(owner, victimPage);
+        }
+
+        pages.setFrame(page, frame);
+        load(pid, page, frame);
+
+        return frame;
+    }
+
+    /**
+     * Display the TLB hit and miss counts
+     */
+    public void printTlbStats() {
+        System.out.println("TLB: " + tlb.getHits() + " hits, " + tlb.getMisses() + " misses ("
+                + Math.round(tlb.getHitRatio() * 100) + "% hit ratio)");
+    }
+
+    /**
+     * Display the page faults and evictions of each process, and in total
+     */
+    public void printPagingStats() {
+        try {
+            // Acquire the semaphore lock
+            semaphore.waitSem();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        for (Map.Entry<Integer, PageTable> entry : table.entrySet()) {
+            System.out.println("PID " + entry.getKey() + ": " + entry.getValue().getFaults() + " faults, "
+                    + entry.getValue().getEvictions() + " evictions");
+        }
+        System.out.println("Total: " + faults + " faults, " + evictions + " evictions");
+
+        // Release the semaphore lock
+        semaphore.signal();
+    }
+
+    @Override
+    public boolean hasAllocation(int pid) {
+        try {
+            // Acquire the semaphore lock
+            semaphore.waitSem();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        try {
+            return table.containsKey(pid);
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+        }
+    }
+
+    @Override
+    public Map<Integer, Usage> getUsage() {
+        try {
+            // Acquire the semaphore lock
+            semaphore.waitSem();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new HashMap<>();
+        }
+
+        try {
+            return new HashMap<>(usage);
+        }
+        finally {
+            // Release the semaphore lock
+            semaphore.signal();
+        }
+    }
+
+    @Override
+    public int getOwner(int address) throws InterruptedException {
+        int frame = address / pageSize;
+
+        // The bytes after the last whole page are never held
+        return frame < frameOwner.length ? frameOwner[frame] : 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public List<Segment> getSegments() throws InterruptedException {
+        ArrayList<Segment> segments = new ArrayList<>();
+
+        // Acquire the semaphore lock
+        semaphore.waitSem();
+
+        // Each frame is a run, joined to its neighbours with the same owner
+        for (int i=0; i<frameOwner.length; i++) {
+            MemoryView.addRun(segments, i * pageSize, (i + 1) * pageSize, frameOwner[i]);
+        }
+
+        // Release the semaphore lock
+        semaphore.signal();
+
+        // The bytes after the last whole page are never held
+        MemoryView.addRun(segments, frameOwner.length * pageSize, size, 0);
+
+        return segments;
+    }
+
+    @Override
+    public void printMemory() {
+        try {
+            new MemoryView().printMap(this);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
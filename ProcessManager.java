@@ -1,85 +1,944 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ProcessManager {
-    // Queue to hold all created processes
-    private ArrayList<PCB> queue;
-    // The PID given to the next process
+    // Every process that hasn't terminated, by PID
+    private HashMap<Integer, PCB> processes;
+    // The processes in each state, in the order they entered it
+    private EnumMap<PCB.State, LinkedHashSet<PCB>> states;
+    // The PIDs of terminated processes, given out again before new ones
+    private ArrayDeque<Integer> freePids;
+    // The PID given to the next process, once no PID is free
     private int nextPid = 1;
+    // The memory allocator, freeing a processes memory when it terminates (may be null)
+    private Allocator allocator;
+    // The resource manager, releasing a processes resources when it terminates (may be null)
+    private ResourceManager resources;
+    // The scheduling policy, and its time quantum (ms)
+    private Policy policy = Policy.ROUND_ROBIN;
+    private int quantum = 1000;
+    // The CPU time passed across every schedule (ms)
+    private long time = 0;
+    // Whether time is simulated, advancing instantly, instead of slept through
+    private boolean simulated = false;
+    // The events still to happen, in time order
+    private PriorityQueue<Event> events = new PriorityQueue<>();
+    // The number of events created so far
+    private long eventCount = 0;
+    // Whether a schedule is running, and the thread running it
+    private volatile boolean scheduling = false;
+    private Thread scheduler;
+    // Processes made ready by other threads while scheduling, i.e. by a workload freeing memory
+    private ConcurrentLinkedQueue<Integer> readied = new ConcurrentLinkedQueue<>();
+    // The workload run by each processes thread (null == processes have no threads)
+    private Workload workload;
+    // The thread behind each process, while a workload is set
+    private HashMap<Integer, ProcessThread> threads = new HashMap<>();
+    // The number of cores
+    private int cores = 1;
+    // The ready queue of each core, while scheduling
+    private Scheduler[] ready;
+    // The process running on each core, when its time slice started, and the event ending it
+    private PCB[] running;
+    private long[] sliceStart;
+    private Event[] sliceEnd;
+    // The CPU time used on each core, and the processes stolen between cores, in the last schedule
+    private long[] busy;
+    private long steals = 0;
+    // The completed processes, and their total waiting and turnaround times (ms)
+    private int completed = 0;
+    private long totalWaiting = 0, totalTurnaround = 0;
+    // The dispatch, preemption and steal counts, and the ready queue length at each dispatch
+    private Metrics metrics = new Metrics();
+    private LongAdder dispatches, preemptions, stolen;
+    private Histogram queueLength;
+
+    /**
+     * CPU scheduling policies
+     */
+    public static enum Policy {
+        ROUND_ROBIN,
+        PRIORITY,
+        SJF,
+        SRTF,
+        MLFQ;
+    }
 
     public ProcessManager() {
-        queue = new ArrayList<>();
+        this(null);
     }
 
     /**
-     * Create a new process
-     * 
+     * Creates a process manager, which frees the memory of each process that terminates
+     *
+     * @param allocator The memory allocator
+     */
+    public ProcessManager(Allocator allocator) {
+        this.allocator = allocator;
+        this.processes = new HashMap<>();
+        this.states = new EnumMap<>(PCB.State.class);
+        this.freePids = new ArrayDeque<>();
+
+        for (PCB.State state : PCB.State.values()) {
+            // Terminated processes are removed
+            if (state != PCB.State.TERMINATED) {
+                states.put(state, new LinkedHashSet<>());
+            }
+        }
+
+        dispatches = metrics.counter("scheduler.dispatches");
+        preemptions = metrics.counter("scheduler.preemptions");
+        stolen = metrics.counter("scheduler.steals");
+        queueLength = metrics.histogram("scheduler.queue_length");
+        metrics.gauge("scheduler.ready", () -> states.get(PCB.State.READY).size());
+        metrics.gauge("scheduler.blocked", () -> states.get(PCB.State.BLOCKED).size());
+    }
+
+    /**
+     * Get the scheduling metrics, across every schedule
+     *
+     * @return The metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Create a new process, needing up to 5 seconds of CPU time
+     *
      * @param name The process name
      */
     public void createProcess(String name) {
-        queue.add(new PCB(nextPid++, name, PCB.State.READY)); // Updated to Ready Instead of Blocked - Hoyt Brem
-        System.out.println("Created new process: [" + name + "]");
+        createProcess(name, 0, (int) (5000 * Math.random()));
+    }
+
+    /**
+     * Create a new process
+     *
+     * @param name The process name
+     * @param priority The scheduling priority (lower runs first)
+     * @param burst The CPU time needed (ms)
+     */
+    public void createProcess(String name, int priority, int burst) {
+        createProcess(name, priority, burst, time);
+    }
+
+    /**
+     * Create a new process, arriving at a given time
+     *
+     * @param name The process name
+     * @param priority The scheduling priority (lower runs first)
+     * @param burst The CPU time needed (ms)
+     * @param arrival The time the process arrives (ms), not before the current time
+     * @return The process
+     */
+    public PCB createProcess(String name, int priority, int burst, long arrival) {
+        // Check the input, as a negative time would never run out
+        if (burst < 0) {
+            throw new IllegalArgumentException("Invalid CPU time");
+        }
+
+        // Reuse the PID of a terminated process first
+        int pid = freePids.isEmpty() ? nextPid++ : freePids.poll();
+
+        PCB process = new PCB(pid, name, PCB.State.READY, priority, burst, Math.max(arrival, time)); // Updated to Ready Instead of Blocked - Hoyt Brem
+        processes.put(pid, process);
+        states.get(PCB.State.READY).add(process);
+        if (Log.isEnabled()) {
+            Log.println("Created new process: [" + name + "]");
+        }
+        return process;
+    }
+
+    /**
+     * Release the resources of each process that terminates
+     *
+     * @param resources The resource manager
+     */
+    public void setResourceManager(ResourceManager resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * Change the CPU scheduling policy
+     *
+     * @param policy The scheduling policy
+     * @param quantum The time quantum, for Round-Robin and the top MLFQ level (ms)
+     */
+    public void setPolicy(Policy policy, int quantum) {
+        // Check the input, as an empty time slice would never finish a process
+        if (quantum < 1) {
+            throw new IllegalArgumentException("Invalid time quantum");
+        }
+
+        this.policy = policy;
+        this.quantum = quantum;
+    }
+
+    /**
+     * Choose whether time is simulated, or slept through
+     * Both give the same schedule, simulated time just doesn't wait for it
+     *
+     * @param simulated True to advance time instantly; False, to sleep
+     */
+    public void setSimulated(boolean simulated) {
+        this.simulated = simulated;
+    }
+
+    /**
+     * Change the number of cores processes are scheduled on
+     *
+     * @param cores The number of cores
+     */
+    public void setCores(int cores) {
+        // Check the input
+        if (cores < 1) {
+            throw new IllegalArgumentException("There must be at least one core");
+        }
+
+        this.cores = cores;
+    }
+
+    /**
+     * Back every process with a thread running a workload, or stop doing so
+     * Each thread runs one slice of the workload whenever its process is dispatched, so
+     * processes on different cores contend on the allocator and resources for real
+     *
+     * @param workload The workload, or null to schedule processes without threads
+     * @throws InterruptedException
+     */
+    public void setWorkload(Workload workload) throws InterruptedException {
+        // Check the input
+        if (scheduling) {
+            throw new IllegalStateException("Cannot change the workload while scheduling");
+        }
+
+        stopThreads();
+        this.workload = workload;
+    }
+
+    /**
+     * Get the thread behind a process, starting it if needed
+     *
+     * @param process The process
+     * @return The thread
+     */
+    private ProcessThread threadOf(PCB process) {
+        return threads.computeIfAbsent(process.getPid(), pid -> new ProcessThread(pid, workload));
+    }
+
+    /**
+     * End every processes thread
+     *
+     * @throws InterruptedException
+     */
+    private void stopThreads() throws InterruptedException {
+        for (ProcessThread thread : threads.values()) {
+            thread.stop();
+        }
+        threads.clear();
+    }
+
+    /**
+     * Create the ready queue of the current policy
+     *
+     * @return An empty scheduler
+     */
+    private Scheduler newScheduler() {
+        switch (policy) {
+            case PRIORITY:
+                return new PriorityScheduler(true);
+            case SJF:
+                return new ShortestJobScheduler(false);
+            case SRTF:
+                return new ShortestJobScheduler(true);
+            case MLFQ:
+                return new FeedbackScheduler(3, quantum);
+            default:
+                return new RoundRobinScheduler(quantum);
+        }
     }
 
     /**
-     * Print each READY process as RUNNING
-     * Simulate Round-Robin or other CPU scheduling algorithms
-     * 
+     * Run every READY process until it completes, using the current scheduling policy
+     * The schedule is driven by events (arrivals, time slice ends and I/O completions)
+     * in time order; time either jumps to the next event, or is slept through
+     *
+     * Each core has its own ready queue. A process becoming ready goes to the least loaded
+     * core it may run on, and an idle core with nothing ready steals from the busiest core
+     *
      * @throws InterruptedException
      */
     public void schedule() throws InterruptedException {
-        for (PCB process : queue) {
-            // The process is ready for execution
-            if (process.getState() == PCB.State.READY) {
-                // Execute this process
-                process.setState(PCB.State.RUNNING);
+        ready = new Scheduler[cores];
+        running = new PCB[cores];
+        sliceStart = new long[cores];
+        sliceEnd = new Event[cores];
+        busy = new long[cores];
+        steals = 0;
+        events.clear();
+
+        for (int i=0; i<cores; i++) {
+            ready[i] = newScheduler();
+        }
+
+        // Add each process ready for execution, now or when it arrives
+        for (PCB process : states.get(PCB.State.READY)) {
+            addEvent(Math.max(process.getArrival(), time), Event.Type.ARRIVAL, process);
+        }
+
+        // The time and completed processes before this schedule
+        long start = time;
+        int completedBefore = completed;
+        long waitingBefore = totalWaiting, turnaroundBefore = totalTurnaround;
+
+        // Every process is live on its own thread, waiting to be dispatched
+        if (workload != null) {
+            for (PCB process : processes.values()) {
+                threadOf(process);
+            }
+        }
+
+        // Processes made ready while scheduling join the schedule
+        scheduler = Thread.currentThread();
+        scheduling = true;
+
+        try {
+            while (true) {
+                // Processes made ready by other threads join from this one
+                for (Integer pid = readied.poll(); pid != null; pid = readied.poll()) {
+                    readyProcess(pid);
+                }
+
+                // Give each idle core the next ready process, once everything happening now has happened
+                if (events.isEmpty() || events.peek().getTime() > time) {
+                    // The number of ready processes across every core
+                    int waiting = 0;
+                    for (int i=0; i<cores; i++) {
+                        waiting += ready[i].size();
+                    }
+
+                    for (int i=0; i<cores && waiting > 0; i++) {
+                        if (running[i] == null && dispatch(i)) {
+                            waiting--;
+                        }
+                    }
+                }
+
+                Event event = events.poll();
+
+                // Nothing is left to happen
+                if (event == null) {
+                    break;
+                }
+
+                // The time slice was cut short by preemption
+                if (event.isCancelled()) {
+                    continue;
+                }
+
+                advance(event.getTime());
+                PCB process = event.getProcess();
 
-                System.out.println("Running: " + process);
+                switch (event.getType()) {
+                    case ARRIVAL:
+                    case IO_COMPLETE:
+                        // The process was terminated, or made ready before its I/O completed
+                        if (process.getState() == PCB.State.TERMINATED
+                                || (event.getType() == Event.Type.IO_COMPLETE && process.getState() != PCB.State.BLOCKED)) {
+                            break;
+                        }
 
-                // Simulate running time for 5 seconds
-                Thread.sleep((int) (5000 * Math.random()));
+                        // The process is ready to run again
+                        if (event.getType() == Event.Type.IO_COMPLETE) {
+                            process.setIoWaited(process.getIoWaited() + process.getIoTime());
+                        }
 
-                // Reset the process to READY
-                process.setState(PCB.State.READY);
+                        setState(process, PCB.State.READY);
+
+                        int core = place(process);
+                        PCB current = running[core];
+
+                        // Bring the running process up to date, so the scheduler can compare them
+                        if (current != null) {
+                            run(current, time - sliceStart[core]);
+                            sliceStart[core] = time;
+
+                            // Take the CPU from the running process, keeping its level
+                            if (ready[core].preempts(current, process)) {
+                                await(current);
+                                sliceEnd[core].cancel();
+                                preemptions.increment();
+                                setState(current, PCB.State.READY);
+                                ready[core].add(current);
+                                running[core] = null;
+                            }
+                        }
+
+                        ready[core].add(process);
+                        break;
+                    case SLICE_END:
+                        await(process);
+                        core = process.getCore();
+                        run(process, time - sliceStart[core]);
+                        running[core] = null;
+
+                        // The process has finished
+                        if (process.getRemaining() <= 0) {
+                            terminate(process);
+                        }
+                        // The process is waiting on I/O
+                        else if (process.getIoInterval() > 0 && process.getSinceIo() >= process.getIoInterval()) {
+                            process.setSinceIo(0);
+                            setState(process, PCB.State.BLOCKED);
+                            addEvent(time + process.getIoTime(), Event.Type.IO_COMPLETE, process);
+                        }
+                        // Reset the process to READY, and return it to the core's scheduler
+                        else {
+                            setState(process, PCB.State.READY);
+                            ready[core].expired(process);
+                        }
+                        break;
+                }
             }
         }
+        finally {
+            scheduling = false;
+        }
+
+        printStats(completed - completedBefore, totalWaiting - waitingBefore, totalTurnaround - turnaroundBefore, time - start);
+        printCoreStats(time - start);
+
+        if (workload != null) {
+            workload.printStats();
+        }
     }
 
     /**
-     * Block a process from execution
-     * 
+     * Choose the core a ready process is queued on
+     * This is the core it has an affinity for, otherwise the core with the fewest processes
+     *
+     * @param process The process
+     * @return The core index
+     */
+    private int place(PCB process) {
+        // The process may only run on one core
+        if (process.getAffinity() >= 0 && process.getAffinity() < cores) {
+            return process.getAffinity();
+        }
+
+        int best = 0, bestLoad = Integer.MAX_VALUE;
+
+        for (int i=0; i<cores; i++) {
+            int load = ready[i].size() + (running[i] == null ? 0 : 1);
+
+            if (load < bestLoad) {
+                best = i;
+                bestLoad = load;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Start the next process on an idle core, stealing one from the busiest core
+     * if the core has nothing ready
+     *
+     * @param core The core index
+     * @return True if a process was started; False, otherwise
+     */
+    private boolean dispatch(int core) {
+        PCB process = ready[core].next();
+
+        // Steal from the core with the most ready processes
+        if (process == null) {
+            process = steal(core);
+        }
+
+        // Nothing can run on the core
+        if (process == null) {
+            return false;
+        }
+
+        // The processes left waiting on the core
+        dispatches.increment();
+        queueLength.record(ready[core].size());
+
+        setState(process, PCB.State.RUNNING);
+        process.setCore(core);
+        running[core] = process;
+        sliceStart[core] = time;
+        sliceEnd[core] = addEvent(time + slice(ready[core], process), Event.Type.SLICE_END, process);
+
+        // Let the processes thread run its slice
+        if (workload != null) {
+            threadOf(process).dispatch();
+        }
+
+        if (Log.isEnabled()) {
+            Log.println("Running: " + process + (cores > 1 ? " on core " + core : ""));
+        }
+        return true;
+    }
+
+    /**
+     * Wait for a processes thread to finish its slice, if it has one
+     *
+     * @param process The process
+     * @throws InterruptedException
+     */
+    private void await(PCB process) throws InterruptedException {
+        ProcessThread thread = threads.get(process.getPid());
+
+        if (thread != null) {
+            thread.await();
+        }
+    }
+
+    /**
+     * End a processes thread, if it has one
+     *
      * @param pid The process ID
+     * @throws InterruptedException
      */
-    public void blockProcess(int pid) {
-        if (queue.size() < pid) {
-            System.out.println("Invalid process ID");
+    private void stopThread(int pid) throws InterruptedException {
+        ProcessThread thread = threads.remove(pid);
+
+        if (thread != null) {
+            thread.stop();
+        }
+    }
+
+    /**
+     * Take a ready process from another core, trying the busiest core first
+     *
+     * @param core The idle core
+     * @return The process, or null if no other core has one that may run on the idle core
+     */
+    private PCB steal(int core) {
+        int busiest = -1;
+
+        for (int i=0; i<cores; i++) {
+            if (i != core && ready[i].size() > 0 && (busiest == -1 || ready[i].size() > ready[busiest].size())) {
+                busiest = i;
+            }
+        }
+
+        // No other core has anything ready
+        if (busiest == -1) {
+            return null;
+        }
+
+        PCB process = ready[busiest].steal(core);
+
+        // The busiest core's processes have an affinity elsewhere, so try every core
+        for (int i=0; process == null && i<cores; i++) {
+            if (i != core && i != busiest && ready[i].size() > 0) {
+                process = ready[i].steal(core);
+            }
+        }
+
+        if (process != null) {
+            steals++;
+            stolen.increment();
+        }
+
+        return process;
+    }
+
+    /**
+     * Get the length of a processes next time slice
+     * It ends at the end of the quantum, when the process finishes, or when it requests I/O
+     *
+     * @param ready The scheduler
+     * @param process The process
+     * @return The time slice (ms)
+     */
+    private int slice(Scheduler ready, PCB process) {
+        int slice = Math.min(ready.quantum(process), process.getRemaining());
+
+        if (process.getIoInterval() > 0) {
+            slice = Math.min(slice, process.getIoInterval() - process.getSinceIo());
+        }
+
+        return slice;
+    }
+
+    /**
+     * Record CPU time used by a process
+     *
+     * @param process The process
+     * @param ran The CPU time used (ms)
+     */
+    private void run(PCB process, long ran) {
+        busy[process.getCore()] += ran;
+        process.setRemaining(process.getRemaining() - (int) ran);
+        process.setSinceIo(process.getSinceIo() + (int) ran);
+    }
+
+    /**
+     * Add an event to happen
+     *
+     * @param time The time the event happens (ms)
+     * @param type The kind of event
+     * @param process The process the event happens to
+     * @return The event
+     */
+    private Event addEvent(long time, Event.Type type, PCB process) {
+        Event event = new Event(time, type, process, eventCount++);
+        events.add(event);
+        return event;
+    }
+
+    /**
+     * Move time forward to an event, sleeping for the difference unless time is simulated
+     *
+     * @param to The time of the event (ms)
+     * @throws InterruptedException
+     */
+    private void advance(long to) throws InterruptedException {
+        if (!simulated && to > time) {
+            Thread.sleep(to - time);
+        }
+
+        time = Math.max(time, to);
+    }
+
+    /**
+     * Move a process to a new state, keeping the state indexes up to date
+     * A terminated process is removed, and its PID is freed for reuse
+     *
+     * @param process The process
+     * @param state The new state
+     */
+    private void setState(PCB process, PCB.State state) {
+        // The process has already terminated
+        if (process.getState() == PCB.State.TERMINATED) {
+            return;
+        }
+
+        states.get(process.getState()).remove(process);
+        process.setState(state);
+
+        if (state == PCB.State.TERMINATED) {
+            processes.remove(process.getPid());
+            freePids.add(process.getPid());
+        }
+        else {
+            states.get(state).add(process);
+        }
+    }
+
+    /**
+     * Mark a process as finished, free its memory, and record its waiting and turnaround times
+     *
+     * @param process The process
+     * @throws InterruptedException
+     */
+    private void terminate(PCB process) throws InterruptedException {
+        stopThread(process.getPid());
+        setState(process, PCB.State.TERMINATED);
+        process.setFinish(time);
+
+        if (allocator != null) {
+            allocator.free(process.getPid());
+        }
+        if (resources != null) {
+            resources.releaseAll(process.getPid());
+        }
+
+        long turnaround = time - process.getArrival();
+        totalTurnaround += turnaround;
+        totalWaiting += turnaround - process.getBurst() - process.getIoWaited();
+        completed++;
+
+        if (Log.isEnabled()) {
+            Log.println("Completed: " + process);
+        }
+    }
+
+    /**
+     * Display the average waiting and turnaround times, and the throughput
+     *
+     * @param completed The number of completed processes
+     * @param waiting The total waiting time (ms)
+     * @param turnaround The total turnaround time (ms)
+     * @param elapsed The CPU time taken (ms)
+     */
+    private void printStats(int completed, long waiting, long turnaround, long elapsed) {
+        // Nothing was run
+        if (completed == 0) {
             return;
         }
 
+        Log.println("Completed " + completed + " processes in " + elapsed + " ms");
+        Log.println("Average waiting time: " + (waiting / completed) + " ms");
+        Log.println("Average turnaround time: " + (turnaround / completed) + " ms");
+        Log.println("Throughput: " + String.format("%.2f", completed * 1000.0 / Math.max(1, elapsed)) + " processes/s");
+    }
+
+    /**
+     * Display how busy each core was, and the number of steals, when there is more than one core
+     *
+     * @param elapsed The time taken (ms)
+     */
+    private void printCoreStats(long elapsed) {
+        // Nothing was run, or there is only one core
+        if (elapsed == 0 || cores == 1) {
+            return;
+        }
+
+        for (int i=0; i<cores; i++) {
+            Log.println("Core " + i + ": " + Math.round(busy[i] * 100.0 / elapsed) + "% utilization");
+        }
+        Log.println("Steals: " + steals);
+    }
+
+    /**
+     * Write the clock, PID counter, free PIDs, scheduling settings and every process to a snapshot
+     * Processes are written in state order, and in the order they entered their state
+     *
+     * @param snapshot The snapshot being written
+     * @throws IOException
+     */
+    public void save(Snapshot snapshot) throws IOException {
+        snapshot.putLong(time);
+        snapshot.putInt(nextPid);
+        snapshot.putInt(policy.ordinal());
+        snapshot.putInt(quantum);
+        snapshot.putInt(cores);
+        snapshot.putInt(completed);
+        snapshot.putLong(totalWaiting);
+        snapshot.putLong(totalTurnaround);
+
+        snapshot.putInt(freePids.size());
+        for (int pid : freePids) {
+            snapshot.putInt(pid);
+        }
+
+        snapshot.putInt(processes.size());
+        for (LinkedHashSet<PCB> inState : states.values()) {
+            for (PCB process : inState) {
+                snapshot.putInt(process.getPid());
+                snapshot.putString(process.getName());
+                snapshot.putByte(process.getState().ordinal());
+                snapshot.putByte(process.isActive() ? 1 : 0);
+                snapshot.putInt(process.getPriority());
+                snapshot.putInt(process.getBurst());
+                snapshot.putInt(process.getRemaining());
+                snapshot.putLong(process.getArrival());
+                snapshot.putLong(process.getFinish());
+                snapshot.putInt(process.getLevel());
+                snapshot.putInt(process.getIoInterval());
+                snapshot.putInt(process.getIoTime());
+                snapshot.putInt(process.getSinceIo());
+                snapshot.putLong(process.getIoWaited());
+                snapshot.putInt(process.getAffinity());
+                snapshot.putInt(process.getCore());
+            }
+        }
+    }
+
+    /**
+     * Replace every process, and the clock, PID counter and scheduling settings, with those of a snapshot
+     *
+     * @param snapshot The snapshot being read
+     * @throws InterruptedException
+     */
+    public void restore(Snapshot snapshot) throws InterruptedException {
+        // Check the input
+        if (scheduling) {
+            throw new IllegalStateException("Cannot restore while scheduling");
+        }
+
+        // The threads belonged to the replaced processes
+        stopThreads();
+
+        time = snapshot.getLong();
+        nextPid = snapshot.getInt();
+        policy = Policy.values()[snapshot.getInt()];
+        quantum = snapshot.getInt();
+        cores = snapshot.getInt();
+        completed = snapshot.getInt();
+        totalWaiting = snapshot.getLong();
+        totalTurnaround = snapshot.getLong();
+
+        freePids.clear();
+        int free = snapshot.getInt();
+        for (int i=0; i<free; i++) {
+            freePids.add(snapshot.getInt());
+        }
+
+        processes.clear();
+        for (LinkedHashSet<PCB> inState : states.values()) {
+            inState.clear();
+        }
+
+        int count = snapshot.getInt();
+        for (int i=0; i<count; i++) {
+            int pid = snapshot.getInt();
+            String name = snapshot.getString();
+            PCB.State state = PCB.State.values()[snapshot.getByte()];
+            boolean active = snapshot.getByte() == 1;
+            int priority = snapshot.getInt();
+            int burst = snapshot.getInt();
+            int remaining = snapshot.getInt();
+            long arrival = snapshot.getLong();
+
+            PCB process = new PCB(pid, name, state, priority, burst, arrival);
+            process.setActive(active);
+            process.setRemaining(remaining);
+            process.setFinish(snapshot.getLong());
+            process.setLevel(snapshot.getInt());
+            process.setIo(snapshot.getInt(), snapshot.getInt());
+            process.setSinceIo(snapshot.getInt());
+            process.setIoWaited(snapshot.getLong());
+            process.setAffinity(snapshot.getInt());
+            process.setCore(snapshot.getInt());
+
+            processes.put(pid, process);
+            states.get(state).add(process);
+        }
+    }
+
+    /**
+     * Find a process by PID
+     *
+     * @param pid The process ID
+     * @return The process, or null if there is no such process
+     */
+    public PCB getProcess(int pid) {
+        PCB process = processes.get(pid);
+
+        if (process == null) {
+            Log.println("Invalid process ID");
+        }
+
+        return process;
+    }
+
+    /**
+     * Restrict a process to one core
+     *
+     * @param pid The process ID
+     * @param core The core index (-1 == any core)
+     */
+    public void setAffinity(int pid, int core) {
+        PCB process = getProcess(pid);
+
+        if (process != null) {
+            process.setAffinity(core);
+        }
+    }
+
+    /**
+     * Block a process from execution
+     *
+     * @param pid The process ID
+     */
+    public void blockProcess(int pid) {
+        PCB process = getProcess(pid);
+
         // Set process to blocked state
-        queue.get(pid - 1).setState(PCB.State.BLOCKED);
+        if (process != null) {
+            setState(process, PCB.State.BLOCKED);
+        }
     }
 
     /**
      * Allow a process to execute
-     * 
+     *
      * @param pid The process ID
      */
     public void readyProcess(int pid) {
-        if (queue.size() < pid) {
-            System.out.println("Invalid process ID");
+        // Another thread, i.e. a workload admitting memory, leaves it to the scheduler
+        if (scheduling && Thread.currentThread() != scheduler) {
+            readied.add(pid);
             return;
         }
 
+        PCB process = getProcess(pid);
+
+        // Nothing to do
+        if (process == null || process.getState() == PCB.State.READY) {
+            return;
+        }
+
+        // While scheduling, a blocked process (i.e. given the memory it waited for) arrives now
+        if (scheduling && process.getState() == PCB.State.BLOCKED) {
+            addEvent(time, Event.Type.ARRIVAL, process);
+        }
+
         // Set process to ready state
-        queue.get(pid - 1).setState(PCB.State.READY);
+        setState(process, PCB.State.READY);
+    }
+
+    /**
+     * Terminate a process before it completes, freeing its memory
+     * The process is removed, and its PID may be given to a new process
+     *
+     * @param pid The process ID
+     * @throws InterruptedException
+     */
+    public void terminateProcess(int pid) throws InterruptedException {
+        PCB process = processes.get(pid);
+
+        if (process != null) {
+            stopThread(pid);
+            setState(process, PCB.State.TERMINATED);
+        }
+
+        // Free the memory and resources even if the PID was never a process
+        if (allocator != null) {
+            allocator.free(pid);
+        }
+        if (resources != null) {
+            resources.releaseAll(pid);
+        }
+    }
+
+    /**
+     * Get the number of processes that haven't terminated
+     *
+     * @return The process count
+     */
+    public int size() {
+        return processes.size();
     }
 
     /**
      * Display all processes and their states
      */
     public void listProcesses() {
-        // Go through each process, and print its info
-        for (PCB process : queue) {
+        // Go through each state, and print the info of its processes
+        for (LinkedHashSet<PCB> inState : states.values()) {
+            for (PCB process : inState) {
+                System.out.println(process);
+            }
+        }
+    }
+
+    /**
+     * Display the processes in one state
+     *
+     * @param state The process state
+     */
+    public void listProcesses(PCB.State state) {
+        LinkedHashSet<PCB> inState = states.get(state);
+
+        // Terminated processes aren't kept
+        if (inState == null) {
+            return;
+        }
+
+        for (PCB process : inState) {
             System.out.println(process);
         }
     }
@@ -0,0 +1,146 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The thread behind a process, in the threaded execution mode. It waits until the
+ * scheduler dispatches the process, runs the workload for one time slice, and waits
+ * again, so the scheduler decides when each process runs while the workloads of
+ * processes on different cores run at the same time.
+ *
+ * Threads are virtual where the runtime supports them (Java 21+), so 100k+ processes
+ * can be live at once. They are looked up by reflection, so this still builds and runs
+ * on older runtimes, falling back to daemon platform threads with small stacks.
+ */
+public class ProcessThread {
+    // The stack size of platform threads, when virtual threads aren't available (bytes)
+    private static long STACK_SIZE = 256 * 1024;
+
+    // Creates virtual threads: Thread.ofVirtual() and Thread.Builder.unstarted (null == not supported)
+    private static Object builder;
+    private static Method unstarted;
+
+    static {
+        try {
+            builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            // Older runtimes, or virtual threads still in preview
+            builder = null;
+            unstarted = null;
+        }
+    }
+
+    private int pid;
+    private Workload workload;
+    private Thread thread;
+    // Released by the scheduler to start a slice, and by the thread once it is done
+    private Semaphore go = new Semaphore(0);
+    private Semaphore done = new Semaphore(0);
+    // Whether a slice has started and not been waited for (only used by the scheduler)
+    private boolean running = false;
+    // Whether the thread should exit
+    private volatile boolean stopped = false;
+    // The bytes the process holds from earlier slices (only used by the thread)
+    private int held = 0;
+
+    /**
+     * Creates and starts the thread behind a process, waiting for its first slice
+     * @param pid The process ID
+     * @param workload The workload run each slice
+     */
+    public ProcessThread(int pid, Workload workload) {
+        this.pid = pid;
+        this.workload = workload;
+        this.thread = newThread(this::loop, "PID " + pid);
+        this.thread.start();
+    }
+
+    /**
+     * Create a thread, virtual if possible
+     * @param task The code the thread runs
+     * @param name The thread name
+     * @return The unstarted thread
+     */
+    private static Thread newThread(Runnable task, String name) {
+        if (unstarted != null) {
+            try {
+                Thread thread = (Thread) unstarted.invoke(builder, task);
+                thread.setName(name);
+                return thread;
+            }
+            catch (ReflectiveOperationException e) {
+                // Fall back to a platform thread
+            }
+        }
+
+        Thread thread = new Thread(null, task, name, STACK_SIZE);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Check if process threads are virtual
+     * @return True if virtual threads are supported; False, if platform threads are used
+     */
+    public static boolean isVirtual() {
+        return unstarted != null;
+    }
+
+    /**
+     * Wait for each slice, and run it, until stopped
+     */
+    private void loop() {
+        try {
+            while (true) {
+                go.acquire();
+
+                if (stopped) {
+                    return;
+                }
+
+                try {
+                    held = workload.run(pid, held);
+                }
+                catch (RuntimeException e) {
+                    Log.println("PID " + pid + " workload failed: " + e);
+                }
+                finally {
+                    done.release();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Start the processes next slice, without waiting for it
+     */
+    public void dispatch() {
+        running = true;
+        go.release();
+    }
+
+    /**
+     * Wait for the current slice to finish, if one is running
+     * @throws InterruptedException
+     */
+    public void await() throws InterruptedException {
+        if (running) {
+            done.acquire();
+            running = false;
+        }
+    }
+
+    /**
+     * Let the current slice finish, then end the thread
+     * @throws InterruptedException
+     */
+    public void stop() throws InterruptedException {
+        await();
+        stopped = true;
+        go.release();
+    }
+}
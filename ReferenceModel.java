@@ -0,0 +1,208 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The simplest correct model of an allocator: it only counts the bytes each process
+ * asked for, so it can't have layout bugs. An engine run in step with it is checked
+ * against it, and against the rules any layout must follow:
+ *
+ *   - No two blocks overlap, and every byte is either free or held by one process
+ *   - The bytes each process holds match its usage, and cover what it asked for
+ *   - Adjacent free blocks are coalesced (MemoryManager only)
+ */
+public class ReferenceModel {
+    // The number of bytes of memory, and the bytes nobody asked for
+    private int size;
+    private long free;
+    // The bytes each process asked for
+    private HashMap<Integer, Long> held = new HashMap<>();
+
+    /**
+     * Creates a reference model
+     * @param size The number of bytes of memory
+     */
+    public ReferenceModel(int size) {
+        this.size = size;
+        this.free = size;
+    }
+
+    /**
+     * Check if an allocation fits in the free bytes, wherever they are
+     * @param size The allocation size
+     * @return True if an allocator that can split allocations must succeed; False, otherwise
+     */
+    public boolean fits(int size) {
+        return size <= free;
+    }
+
+    /**
+     * Record a successful allocation
+     * @param pid The process ID
+     * @param size The allocation size
+     */
+    public void allocate(int pid, int size) {
+        held.merge(pid, (long) size, Long::sum);
+        free -= size;
+    }
+
+    /**
+     * Record a process freeing all of its memory
+     * @param pid The process ID
+     */
+    public void free(int pid) {
+        Long bytes = held.remove(pid);
+
+        if (bytes != null) {
+            free += bytes;
+        }
+    }
+
+    /**
+     * Check if a process holds memory
+     * @param pid The process ID
+     * @return True if the process holds memory; False, otherwise
+     */
+    public boolean hasAllocation(int pid) {
+        return held.containsKey(pid);
+    }
+
+    public long getFree() {
+        return free;
+    }
+
+    /**
+     * Check an engine's layout, usage and free lists against the model
+     * @param engine The allocator, in step with the model
+     * @param exact True if the engine holds exactly the bytes asked for; False, if it may round up
+     * @return The first problem found, or null if there is none
+     * @throws InterruptedException
+     */
+    public String check(Allocator engine, boolean exact) throws InterruptedException {
+        // The engine's memory is a different size
+        if (engine.getSize() != size) {
+            return "Memory is " + engine.getSize() + " bytes, not " + size;
+        }
+
+        // Every byte is in exactly one segment, in order
+        List<Segment> segments = engine.getSegments();
+        HashMap<Integer, Long> owned = new HashMap<>();
+        int next = 0;
+
+        for (Segment segment : segments) {
+            if (segment.start() != next) {
+                return (segment.start() < next ? "Overlap" : "Gap") + " at byte " + Math.min(next, segment.start());
+            }
+            if (segment.size() <= 0) {
+                return "Empty segment at byte " + segment.start();
+            }
+
+            owned.merge(segment.owner(), (long) segment.size(), Long::sum);
+            next = segment.end();
+        }
+
+        if (next != size) {
+            return "Layout ends at byte " + next + ", not " + size;
+        }
+
+        // The bytes each process holds match its usage
+        Map<Integer, Usage> usage = engine.getUsage();
+
+        for (Map.Entry<Integer, Usage> entry : usage.entrySet()) {
+            long bytes = owned.getOrDefault(entry.getKey(), 0L);
+
+            if (bytes != entry.getValue().getBytes()) {
+                return "PID " + entry.getKey() + " holds " + bytes + " bytes, but its usage is " + entry.getValue();
+            }
+        }
+        for (int pid : owned.keySet()) {
+            if (pid != 0 && !usage.containsKey(pid)) {
+                return "PID " + pid + " holds " + owned.get(pid) + " bytes, but has no usage";
+            }
+        }
+
+        // The engine holds what each process asked for, and no more unless it rounds up
+        for (Map.Entry<Integer, Long> entry : held.entrySet()) {
+            Usage used = usage.get(entry.getKey());
+
+            if (used == null) {
+                return "PID " + entry.getKey() + " lost its " + entry.getValue() + " bytes";
+            }
+            if (exact ? used.getBytes() != entry.getValue() : used.getBytes() < entry.getValue()) {
+                return "PID " + entry.getKey() + " asked for " + entry.getValue() + " bytes, but holds " + used.getBytes();
+            }
+        }
+        for (int pid : usage.keySet()) {
+            if (!held.containsKey(pid)) {
+                return "PID " + pid + " holds memory it freed, or never asked for";
+            }
+        }
+
+        if (exact && owned.getOrDefault(0, 0L) != free) {
+            return owned.getOrDefault(0, 0L) + " bytes are free, not " + free;
+        }
+
+        // The free lists match the free segments, and are coalesced
+        if (engine instanceof MemoryManager) {
+            return checkFreeBlocks((MemoryManager) engine, segments);
+        }
+
+        return null;
+    }
+
+    /**
+     * Check every free block lies in a free segment, the free blocks cover every free byte,
+     * and no two free blocks of an arena are adjacent
+     * @param engine The memory manager
+     * @param segments The engine's layout
+     * @return The first problem found, or null if there is none
+     * @throws InterruptedException
+     */
+    private String checkFreeBlocks(MemoryManager engine, List<Segment> segments) throws InterruptedException {
+        long total = 0;
+        int index = 0;
+
+        // Arenas are in address order, so the segments are only walked once
+        for (int i=0; i<engine.getArenas(); i++) {
+            Block previous = null;
+
+            for (Block block : engine.getFreeBlocks(i)) {
+                if (block.size() <= 0) {
+                    return "Empty free block at byte " + block.start() + " in arena " + i;
+                }
+                if (previous != null && previous.end() > block.start()) {
+                    return "Free blocks overlap at byte " + block.start() + " in arena " + i;
+                }
+                if (previous != null && previous.end() == block.start()) {
+                    return "Free blocks not coalesced at byte " + block.start() + " in arena " + i;
+                }
+
+                // Find the segment holding the block's first byte
+                while (index < segments.size() && segments.get(index).end() <= block.start()) {
+                    index++;
+                }
+                if (index == segments.size() || segments.get(index).owner() != 0
+                        || segments.get(index).start() > block.start() || segments.get(index).end() < block.end()) {
+                    return "Free block " + block.start() + "-" + block.end() + " holds bytes of a process";
+                }
+
+                total += block.size();
+                previous = block;
+            }
+        }
+
+        // Free bytes missing from every free list can never be allocated again
+        long freeBytes = 0;
+        for (Segment segment : segments) {
+            if (segment.owner() == 0) {
+                freeBytes += segment.size();
+            }
+        }
+
+        if (total != freeBytes) {
+            return freeBytes + " bytes are free, but the free lists hold " + total;
+        }
+
+        return null;
+    }
+}
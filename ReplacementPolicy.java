@@ -0,0 +1,30 @@
+/**
+ * Chooses which frame to evict when a page fault finds no free frame.
+ * Implementations keep their state in primitive arrays indexed by frame,
+ * so recording an access never allocates.
+ */
+public interface ReplacementPolicy {
+    /**
+     * A page was loaded into a frame
+     * @param frame The frame index
+     */
+    public void loaded(int frame);
+
+    /**
+     * The page in a frame was accessed
+     * @param frame The frame index
+     */
+    public void accessed(int frame);
+
+    /**
+     * A frame was freed, and is no longer a candidate for eviction
+     * @param frame The frame index
+     */
+    public void removed(int frame);
+
+    /**
+     * Choose a frame to evict, and stop tracking it
+     * @return The frame index, or -1 if no frame is loaded
+     */
+    public int victim();
+}
@@ -0,0 +1,438 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Tracks which process holds, and which processes wait for, each lock of a Semaphore2,
+ * treating each lock as a resource. A resource's lock is held while any process holds it;
+ * when it is released it is handed straight to the next waiting process.
+ *
+ * In DETECT mode, a request that would close a cycle in the wait-for graph is refused.
+ * Each process waits for at most one resource, and each resource has one holder, so
+ * the check only follows the chain of holders from the requested resource: O(edges
+ * on that chain), not a scan of the whole graph.
+ *
+ * In AVOID mode, each process first claims the resources it may need, and a request is
+ * only granted if the Banker's algorithm finds the resulting state safe; otherwise the
+ * process waits until it is.
+ *
+ * Waiting is done on this object's monitor; the Semaphore2 only mirrors who holds what.
+ * Its locks are always taken while holding the monitor, and only once the holder map says
+ * the resource is free, with tryWait, so taking one never blocks while holding the monitor.
+ */
+public class ResourceManager {
+    // The locks, one per resource
+    private Semaphore2 semaphore;
+    // The process holding each resource (0 == free)
+    private int[] holders;
+    // The processes waiting for each resource, in the order they asked
+    private ArrayDeque<Integer>[] queued;
+    // The resource each waiting process is waiting for (the wait-for graph edges)
+    private HashMap<Integer, Integer> waitingFor;
+    // The resources held, and claimed, by each process
+    private HashMap<Integer, BitSet> held;
+    private HashMap<Integer, BitSet> claims;
+    // Deadlock detection or avoidance
+    private Mode mode;
+    // Told the PID of each waiting process once it is given its resource (may be null)
+    private IntConsumer grantListener;
+
+    /**
+     * Deadlock handling modes
+     */
+    public static enum Mode {
+        DETECT,
+        AVOID;
+    }
+
+    /**
+     * The outcome of a request
+     */
+    public static enum Result {
+        GRANTED,
+        WAITING,
+        DEADLOCK;
+    }
+
+    /**
+     * Creates a resource manager
+     * @param resources The number of resources
+     * @param mode Deadlock detection or avoidance
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ResourceManager(int resources, Mode mode) {
+        this.semaphore = new Semaphore2(resources, 1, true);
+        this.holders = new int[resources];
+        this.queued = new ArrayDeque[resources];
+        this.waitingFor = new HashMap<>();
+        this.held = new HashMap<>();
+        this.claims = new HashMap<>();
+        this.mode = mode;
+
+        for (int i=0; i<resources; i++) {
+            queued[i] = new ArrayDeque<>();
+        }
+    }
+
+    public synchronized void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Set the listener told the PID of each waiting process once it is given its resource
+     * @param listener The listener (null == none)
+     */
+    public synchronized void setGrantListener(IntConsumer listener) {
+        this.grantListener = listener;
+    }
+
+    /**
+     * Declare the most resources a process may hold at once, for deadlock avoidance
+     * @param pid The process ID
+     * @param resources The resources the process may request
+     */
+    public synchronized void setClaim(int pid, int... resources) {
+        BitSet claim = new BitSet();
+
+        for (int resource : resources) {
+            check(resource);
+            claim.set(resource);
+        }
+
+        claims.put(pid, claim);
+    }
+
+    /**
+     * Request a resource, waiting until it is given to the process
+     * @param pid The process ID
+     * @param resource The resource index
+     * @return True once the resource is held; False, if waiting would deadlock, or the
+     *         request was dropped while waiting (i.e. by releaseAll)
+     * @throws InterruptedException
+     */
+    public boolean request(int pid, int resource) throws InterruptedException {
+        Result result = tryRequest(pid, resource);
+
+        // Waiting would deadlock
+        if (result == Result.DEADLOCK) {
+            return false;
+        }
+
+        // Wait to be handed the resource
+        if (result == Result.WAITING) {
+            synchronized (this) {
+                try {
+                    while (holders[resource] != pid) {
+                        // The request was dropped, so it will never be handed over
+                        Integer waiting = waitingFor.get(pid);
+                        if (waiting == null || waiting != resource) {
+                            return false;
+                        }
+
+                        wait();
+                    }
+                }
+                catch (InterruptedException e) {
+                    // Stop waiting, unless the resource was already handed over
+                    if (holders[resource] != pid) {
+                        queued[resource].remove(pid);
+                        waitingFor.remove(pid);
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Request a resource without waiting
+     * If the resource can't be given now, the process is queued for it, and is
+     * handed it (and the grant listener told) when it is released
+     * @param pid The process ID
+     * @param resource The resource index
+     * @return GRANTED if the resource is now held, WAITING if the process is queued,
+     *         or DEADLOCK if waiting would deadlock (and the request is dropped)
+     * @throws IllegalArgumentException If the process is already waiting for another resource
+     */
+    public Result tryRequest(int pid, int resource) {
+        check(resource);
+
+        synchronized (this) {
+            // The process already holds it
+            if (holders[resource] == pid) {
+                return Result.GRANTED;
+            }
+
+            // A process waits for one resource at a time, which the wait-for graph relies on
+            Integer waiting = waitingFor.get(pid);
+            if (waiting != null) {
+                if (waiting == resource) {
+                    return Result.WAITING;
+                }
+                throw new IllegalArgumentException("PID " + pid + " is already waiting for resource " + waiting);
+            }
+
+            // The request must be within the processes claim
+            if (mode == Mode.AVOID && (!claims.containsKey(pid) || !claims.get(pid).get(resource))) {
+                throw new IllegalArgumentException("PID " + pid + " hasn't claimed resource " + resource);
+            }
+
+            // The resource is free, and nobody is ahead or, with avoidance, giving it is safe
+            // (a request waiting to be safe mustn't hold back one that is safe now)
+            if (holders[resource] == 0 && (mode == Mode.DETECT ? queued[resource].isEmpty() : isSafe(pid, resource))) {
+                grant(pid, resource);
+                return Result.GRANTED;
+            }
+
+            // Waiting would close a cycle of processes waiting on each other
+            if (mode == Mode.DETECT) {
+                ArrayList<Integer> cycle = findCycle(pid, resource);
+
+                if (cycle != null) {
+                    StringBuilder chain = new StringBuilder("Deadlock detected: PID " + pid);
+                    for (int other : cycle) {
+                        chain.append(" -> PID ").append(other);
+                    }
+                    Log.println(chain.toString());
+                    return Result.DEADLOCK;
+                }
+            }
+
+            queued[resource].addLast(pid);
+            waitingFor.put(pid, resource);
+            return Result.WAITING;
+        }
+    }
+
+    /**
+     * Give a free resource to a process, taking its lock
+     * For proper practices should only be called while synchronized
+     * @param pid The process ID
+     * @param resource The resource index
+     */
+    private void grant(int pid, int resource) {
+        holders[resource] = pid;
+        held.computeIfAbsent(pid, key -> new BitSet()).set(resource);
+
+        // A free resource's lock is never locked, so this never waits while holding the monitor
+        if (!semaphore.tryWait(resource)) {
+            throw new IllegalStateException("Resource " + resource + " is locked, but has no holder");
+        }
+    }
+
+    /**
+     * Follow the holders from a resource, looking for the requesting process
+     * For proper practices should only be called while synchronized
+     * @param pid The requesting process
+     * @param resource The requested resource
+     * @return The processes on the cycle, ending with the requester, or null if there is none
+     */
+    private ArrayList<Integer> findCycle(int pid, int resource) {
+        ArrayList<Integer> chain = new ArrayList<>();
+        int holder = holders[resource];
+
+        // Every process waits for one resource at most, so the chain can't be longer than this
+        for (int i=0; i<=waitingFor.size() && holder != 0; i++) {
+            chain.add(holder);
+
+            // The chain leads back to the requester
+            if (holder == pid) {
+                return chain;
+            }
+
+            Integer next = waitingFor.get(holder);
+
+            // The holder isn't waiting, so it can finish and release
+            if (next == null) {
+                return null;
+            }
+
+            holder = holders[next];
+        }
+
+        return null;
+    }
+
+    /**
+     * Check, with the Banker's algorithm, that every process could still finish
+     * if a resource were given to a process
+     * For proper practices should only be called while synchronized
+     * @param pid The process ID
+     * @param resource The resource index
+     * @return True if the state would be safe; False, otherwise
+     */
+    private boolean isSafe(int pid, int resource) {
+        // The free resources, after the grant
+        BitSet available = new BitSet();
+        for (int i=0; i<holders.length; i++) {
+            if (holders[i] == 0 && i != resource) {
+                available.set(i);
+            }
+        }
+
+        // The resources held by each process, after the grant
+        HashMap<Integer, BitSet> holding = new HashMap<>();
+        for (Map.Entry<Integer, BitSet> entry : held.entrySet()) {
+            holding.put(entry.getKey(), (BitSet) entry.getValue().clone());
+        }
+        holding.computeIfAbsent(pid, key -> new BitSet()).set(resource);
+
+        // The processes that may still need more resources
+        ArrayList<Integer> unfinished = new ArrayList<>(claims.keySet());
+        for (int other : holding.keySet()) {
+            if (!claims.containsKey(other)) {
+                unfinished.add(other);
+            }
+        }
+
+        // Repeatedly let a process whose remaining need is available finish, and release
+        boolean progress = true;
+        while (progress && !unfinished.isEmpty()) {
+            progress = false;
+
+            for (int i=0; i<unfinished.size(); i++) {
+                int other = unfinished.get(i);
+                BitSet holds = holding.getOrDefault(other, new BitSet());
+
+                // The resources the process may still ask for
+                BitSet need = (BitSet) claims.getOrDefault(other, new BitSet()).clone();
+                need.andNot(holds);
+                need.andNot(available);
+
+                if (need.isEmpty()) {
+                    available.or(holds);
+                    unfinished.remove(i--);
+                    progress = true;
+                }
+            }
+        }
+
+        return unfinished.isEmpty();
+    }
+
+    /**
+     * Release a resource held by a process, handing it to the next waiting process
+     * @param pid The process ID
+     * @param resource The resource index
+     */
+    public synchronized void release(int pid, int resource) {
+        check(resource);
+
+        // Check the input
+        if (holders[resource] != pid) {
+            throw new IllegalArgumentException("PID " + pid + " doesn't hold resource " + resource);
+        }
+
+        holders[resource] = 0;
+        held.get(pid).clear(resource);
+        if (held.get(pid).isEmpty()) {
+            held.remove(pid);
+        }
+
+        // Release the lock
+        semaphore.signal(resource);
+
+        // With avoidance, any waiting request may now be safe, so try every resource
+        if (mode == Mode.AVOID) {
+            for (int i=0; i<holders.length; i++) {
+                handOff(i);
+            }
+        }
+        else {
+            handOff(resource);
+        }
+    }
+
+    /**
+     * Give a free resource to the first waiting process it can safely go to
+     * For proper practices should only be called while synchronized
+     * @param resource The resource index
+     */
+    private void handOff(int resource) {
+        // The resource isn't free, or nobody is waiting
+        if (holders[resource] != 0 || queued[resource].isEmpty()) {
+            return;
+        }
+
+        for (int pid : queued[resource]) {
+            if (mode == Mode.DETECT || isSafe(pid, resource)) {
+                queued[resource].remove(pid);
+                waitingFor.remove(pid);
+                grant(pid, resource);
+
+                // Wake the waiting thread, or tell the listener
+                notifyAll();
+                if (grantListener != null) {
+                    grantListener.accept(pid);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Release every resource of a process, and drop its requests and claim, i.e. when it terminates
+     * @param pid The process ID
+     */
+    public synchronized void releaseAll(int pid) {
+        // Stop waiting, waking the thread waiting in request
+        Integer waiting = waitingFor.remove(pid);
+        if (waiting != null) {
+            queued[waiting].remove(pid);
+            notifyAll();
+        }
+
+        claims.remove(pid);
+
+        BitSet holds = held.get(pid);
+        if (holds != null) {
+            for (int i=holds.nextSetBit(0); i>=0; i=holds.nextSetBit(i + 1)) {
+                release(pid, i);
+            }
+        }
+    }
+
+    /**
+     * Get the process holding a resource
+     * @param resource The resource index
+     * @return The process ID (0 == free)
+     */
+    public synchronized int getHolder(int resource) {
+        check(resource);
+        return holders[resource];
+    }
+
+    /**
+     * Check if a process is waiting for a resource
+     * @param pid The process ID
+     * @return True if the process is waiting; False, otherwise
+     */
+    public synchronized boolean isWaiting(int pid) {
+        return waitingFor.containsKey(pid);
+    }
+
+    /**
+     * Display the holder and waiting processes of each resource
+     */
+    public synchronized void printResources() {
+        for (int i=0; i<holders.length; i++) {
+            System.out.println("Resource " + i + ": " + (holders[i] == 0 ? "free" : "held by PID " + holders[i])
+                    + (queued[i].isEmpty() ? "" : ", waiting " + queued[i]));
+        }
+    }
+
+    /**
+     * Check a resource index
+     * @param resource The resource index
+     */
+    private void check(int resource) {
+        if (resource < 0 || resource >= holders.length) {
+            throw new IllegalArgumentException("Invalid resource number");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Runs each ready process for up to one quantum, in the order they became ready.
+ */
+public class RoundRobinScheduler implements Scheduler {
+    // The ready processes, from first to last
+    private ArrayDeque<PCB> ready = new ArrayDeque<>();
+    // The time each process runs before being switched out (ms)
+    private int quantum;
+
+    public RoundRobinScheduler(int quantum) {
+        this.quantum = quantum;
+    }
+
+    @Override
+    public void add(PCB process) {
+        ready.addLast(process);
+    }
+
+    @Override
+    public PCB next() {
+        return ready.pollFirst();
+    }
+
+    @Override
+    public int quantum(PCB process) {
+        return this.quantum;
+    }
+
+    @Override
+    public boolean preempts(PCB running, PCB arrived) {
+        // Arrivals wait for the quantum to end
+        return false;
+    }
+
+    @Override
+    public void expired(PCB process) {
+        // Go to the back of the queue
+        ready.addLast(process);
+    }
+
+    @Override
+    public PCB steal(int core) {
+        // Take from the back of the queue
+        Iterator<PCB> processes = ready.descendingIterator();
+
+        while (processes.hasNext()) {
+            PCB process = processes.next();
+
+            if (process.canRunOn(core)) {
+                processes.remove();
+                return process;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return ready.size();
+    }
+}
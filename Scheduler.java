@@ -0,0 +1,50 @@
+/**
+ * A CPU scheduling policy, holding the READY processes and choosing which runs next.
+ */
+public interface Scheduler {
+    /**
+     * Add a process that is ready to run
+     * @param process The process
+     */
+    public void add(PCB process);
+
+    /**
+     * Remove the process that should run next
+     * @return The process, or null if none is ready
+     */
+    public PCB next();
+
+    /**
+     * Get the longest time a process may run before it is switched out
+     * @param process The process
+     * @return The time quantum (ms)
+     */
+    public int quantum(PCB process);
+
+    /**
+     * Check if a process becoming ready should take the CPU from the running process
+     * @param running The running process, with its remaining time up to date
+     * @param arrived The process that became ready
+     * @return True to preempt the running process; False, otherwise
+     */
+    public boolean preempts(PCB running, PCB arrived);
+
+    /**
+     * Return a process that used its whole quantum without finishing
+     * @param process The process
+     */
+    public void expired(PCB process);
+
+    /**
+     * Remove a process for an idle core to run, the one that would otherwise run last
+     * @param core The idle core
+     * @return The process, or null if none may run on the core
+     */
+    public PCB steal(int core);
+
+    /**
+     * Get the number of ready processes
+     * @return The process count
+     */
+    public int size();
+}
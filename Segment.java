@@ -0,0 +1,34 @@
+/**
+ * A run of bytes with the same owner, i.e. Segment(0, 10, 3) is bytes 0 to 9 held by PID 3.
+ */
+public class Segment {
+    private int start, end, owner;
+
+    /**
+     * Creates a run of bytes
+     * @param start The start index
+     * @param end The end index (exclusive)
+     * @param owner The process ID (0 == free)
+     */
+    public Segment(int start, int end, int owner) {
+        this.start = start;
+        this.end = end;
+        this.owner = owner;
+    }
+
+    public int start() {
+        return this.start;
+    }
+
+    public int end() {
+        return this.end;
+    }
+
+    public int owner() {
+        return this.owner;
+    }
+
+    public int size() {
+        return this.end - this.start;
+    }
+}
@@ -1,7 +1,34 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A set of locks, each acquired and released by index.
+ *
+ * The simple form keeps every lock behind one monitor, so releasing any lock wakes every
+ * waiting thread. The queued form (Semaphore2(number, permits, fair)) gives each index its
+ * own lock, permit count and queue of waiting threads, and a release only wakes the threads
+ * it can satisfy. Each index may hold several permits; when fair, threads are served in the
+ * order they asked, otherwise a thread may take a free permit ahead of the queue.
+ *
+ * With a wait histogram set, the time each thread spends waiting is recorded. Threads
+ * that don't wait record nothing, so an uncontended lock costs no more than before.
+ */
 public class Semaphore2 {
 
     private boolean[] buffer;
 
+    // The lock, free permits, most permits and waiting threads of each index, in the queued form
+    private ReentrantLock[] locks;
+    private int[] permits;
+    private int[] maxPermits;
+    private ArrayDeque<Waiter>[] waiters;
+    // Whether waiting threads are always served first
+    private boolean fair;
+    // Records how long threads wait for a lock (ns, null == not recorded)
+    private volatile Histogram waitTime;
+
     // Semaphore with a single lock
     public Semaphore2() {
         buffer = new boolean[1];
@@ -13,57 +40,339 @@ public class Semaphore2 {
     }
 
     /**
-     * Acquire/Wait-For the semaphore lock
+     * Semaphore with multiple locks, each with its own queue of waiting threads
+     * @param number The number of locks
+     * @param permits The number of permits of each lock (1 == a plain lock)
+     * @param fair True to serve waiting threads in order; False, to allow taking free permits ahead of them
      */
-    public synchronized void waitSem() throws InterruptedException {
-        while (buffer[0]) {
-            wait();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Semaphore2(int number, int permits, boolean fair) {
+        // Check the input
+        if (permits < 1) {
+            throw new IllegalArgumentException("Invalid number of permits");
         }
-        // Lock the semaphore
-        buffer[0] = true;
+
+        this.locks = new ReentrantLock[number];
+        this.permits = new int[number];
+        this.maxPermits = new int[number];
+        this.waiters = new ArrayDeque[number];
+        this.fair = fair;
+
+        for (int i=0; i<number; i++) {
+            this.locks[i] = new ReentrantLock();
+            this.permits[i] = permits;
+            this.maxPermits[i] = permits;
+            this.waiters[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Record how long threads wait for each lock
+     * @param waitTime The histogram of wait times (ns), or null to stop recording
+     */
+    public void setWaitHistogram(Histogram waitTime) {
+        this.waitTime = waitTime;
+    }
+
+    /**
+     * Record the time a thread waited, if recording
+     * @param since When the thread started waiting (ns)
+     */
+    private void recordWait(long since) {
+        Histogram histogram = waitTime;
+
+        if (histogram != null) {
+            histogram.record(System.nanoTime() - since);
+        }
+    }
+
+    /**
+     * A thread waiting for permits, woken only once it is given them
+     */
+    private static class Waiter {
+        private Condition granted;
+        private int needed;
+        private boolean done = false;
+
+        private Waiter(Condition granted, int needed) {
+            this.granted = granted;
+            this.needed = needed;
+        }
+    }
+
+    /**
+     * Acquire/Wait-For the semaphore lock
+     */
+    public void waitSem() throws InterruptedException {
+        waitSem(0);
     }
 
     /**
      * Acquire/Wait-For a specific lock
      * @param number The lock to acquire
      */
-    public synchronized void waitSem(int number) throws InterruptedException {
-        // Check the input
-        if (number < 0 || number >= buffer.length) {
-            throw new IllegalArgumentException("Invalid lock number");
+    public void waitSem(int number) throws InterruptedException {
+        waitSem(number, 1);
+    }
+
+    /**
+     * Acquire/Wait-For permits of a specific lock
+     * @param number The lock to acquire
+     * @param count The number of permits
+     */
+    public void waitSem(int number, int count) throws InterruptedException {
+        acquire(number, count, -1);
+    }
+
+    /**
+     * Acquire a specific lock, only if it is free
+     * @param number The lock to acquire
+     * @return True if the lock was acquired; False, otherwise
+     */
+    public boolean tryWait(int number) {
+        try {
+            return acquire(number, 1, 0);
         }
+        catch (InterruptedException e) {
+            // Not waiting, so never interrupted
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Acquire/Wait-For a specific lock, for up to a timeout
+     * @param number The lock to acquire
+     * @param timeout The longest time to wait
+     * @param unit The unit of the timeout
+     * @return True if the lock was acquired; False, if the timeout passed first
+     */
+    public boolean tryWait(int number, long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(number, 1, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    /**
+     * Acquire/Wait-For permits of a specific lock, for up to a timeout
+     * @param number The lock to acquire
+     * @param count The number of permits
+     * @param timeout The longest time to wait
+     * @param unit The unit of the timeout
+     * @return True if the permits were acquired; False, if the timeout passed first
+     */
+    public boolean tryWait(int number, int count, long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(number, count, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    /**
+     * Acquire permits of a lock, waiting for up to a timeout
+     * @param number The lock to acquire
+     * @param count The number of permits
+     * @param nanos The longest time to wait (-1 == forever, 0 == don't wait)
+     * @return True if the permits were acquired; False, if the timeout passed first
+     */
+    private boolean acquire(int number, int count, long nanos) throws InterruptedException {
+        check(number, count);
+
+        // The simple form
+        if (locks == null) {
+            return acquireMonitor(number, nanos);
+        }
+
+        ReentrantLock lock = locks[number];
+        lock.lock();
+
+        try {
+            // Take free permits, unless fairness means queueing behind waiting threads
+            if (permits[number] >= count && (!fair || waiters[number].isEmpty())) {
+                permits[number] -= count;
+                return true;
+            }
+
+            // Not waiting
+            if (nanos == 0) {
+                return false;
+            }
+
+            // Queue until a release hands over the permits
+            Waiter waiter = new Waiter(lock.newCondition(), count);
+            waiters[number].addLast(waiter);
+            boolean timed = nanos > 0;
+            long since = System.nanoTime();
+
+            try {
+                while (!waiter.done) {
+                    if (!timed) {
+                        waiter.granted.await();
+                    }
+                    else if (nanos > 0) {
+                        nanos = waiter.granted.awaitNanos(nanos);
+                    }
+                    // The timeout passed
+                    else {
+                        waiters[number].remove(waiter);
+                        // Threads queued behind may now be served
+                        grant(number);
+                        return false;
+                    }
+                }
+                recordWait(since);
+                return true;
+            }
+            catch (InterruptedException e) {
+                // Give back permits handed over before the interrupt, or leave the queue
+                if (waiter.done) {
+                    permits[number] += count;
+                }
+                else {
+                    waiters[number].remove(waiter);
+                }
+                grant(number);
+                throw e;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquire a lock of the simple form, waiting for up to a timeout
+     * @param number The lock to acquire
+     * @param nanos The longest time to wait (-1 == forever, 0 == don't wait)
+     * @return True if the lock was acquired; False, if the timeout passed first
+     */
+    private synchronized boolean acquireMonitor(int number, long nanos) throws InterruptedException {
+        long since = System.nanoTime();
+        long deadline = since + nanos;
+        boolean waited = buffer[number];
 
         // Wait for the lock
         while (buffer[number]) {
-            wait();
+            if (nanos < 0) {
+                wait();
+            }
+            else {
+                long left = deadline - System.nanoTime();
+
+                // The timeout passed
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
         }
         // Lock the semaphore
         buffer[number] = true;
+
+        if (waited) {
+            recordWait(since);
+        }
+        return true;
     }
 
     /**
      * Release the semaphore lock
      */
-    public synchronized void signal() {
-        // Release the semaphore lock
-        buffer[0] = false;
-        // Notify waiting threads
-        notifyAll();
+    public void signal() {
+        signal(0);
     }
 
     /**
      * Release a specific lock
      * @param number The lock to release
      */
-    public synchronized void signal(int number) {
+    public void signal(int number) {
+        signal(number, 1);
+    }
+
+    /**
+     * Release permits of a specific lock
+     * Like the simple form, releasing a lock that is already free changes nothing
+     * @param number The lock to release
+     * @param count The number of permits
+     */
+    public void signal(int number, int count) {
+        check(number, count);
+
+        // The simple form
+        if (locks == null) {
+            synchronized (this) {
+                // Release the semaphore lock on index 'number'
+                buffer[number] = false;
+                // Notify waiting threads
+                notifyAll();
+            }
+            return;
+        }
+
+        ReentrantLock lock = locks[number];
+        lock.lock();
+
+        try {
+            permits[number] = Math.min(maxPermits[number], permits[number] + count);
+            grant(number);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand free permits to the waiting threads, in order, waking only those served
+     * For proper practices should only be called while holding the index's lock
+     * @param number The lock index
+     */
+    private void grant(int number) {
+        ArrayDeque<Waiter> queue = waiters[number];
+
+        while (!queue.isEmpty() && queue.peekFirst().needed <= permits[number]) {
+            Waiter waiter = queue.pollFirst();
+            permits[number] -= waiter.needed;
+            waiter.done = true;
+            waiter.granted.signal();
+        }
+    }
+
+    /**
+     * Get the number of free permits of a lock
+     * @param number The lock index
+     * @return The free permits (0 or 1, for the simple form)
+     */
+    public int getPermits(int number) {
+        check(number, 1);
+
+        // The simple form
+        if (locks == null) {
+            synchronized (this) {
+                return buffer[number] ? 0 : 1;
+            }
+        }
+
+        ReentrantLock lock = locks[number];
+        lock.lock();
+
+        try {
+            return permits[number];
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check a lock index and permit count
+     * @param number The lock index
+     * @param count The number of permits
+     */
+    private void check(int number, int count) {
+        int length = (locks == null) ? buffer.length : locks.length;
+
         // Check the input
-        if (number < 0 || number >= buffer.length) {
+        if (number < 0 || number >= length) {
             throw new IllegalArgumentException("Invalid lock number");
         }
-        
-        // Release the semaphore lock on index 'number'
-        buffer[number] = false;
-        // Notify waiting threads
-        notifyAll();
+        if (count < 1 || count > ((locks == null) ? 1 : maxPermits[number])) {
+            throw new IllegalArgumentException("Invalid number of permits");
+        }
     }
 }
@@ -0,0 +1,71 @@
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Runs the ready process with the least remaining time to completion (SJF).
+ * When preemptive (SRTF), an arrival with less remaining time takes the CPU
+ * from the running process.
+ */
+public class ShortestJobScheduler implements Scheduler {
+    // The ready processes, by remaining time then arrival
+    private PriorityQueue<PCB> ready = new PriorityQueue<>(
+            Comparator.comparingInt(PCB::getRemaining).thenComparingLong(PCB::getArrival).thenComparingInt(PCB::getPid));
+    // Whether arrivals may take the CPU from the running process
+    private boolean preemptive;
+
+    public ShortestJobScheduler(boolean preemptive) {
+        this.preemptive = preemptive;
+    }
+
+    public boolean isPreemptive() {
+        return this.preemptive;
+    }
+
+    @Override
+    public void add(PCB process) {
+        ready.add(process);
+    }
+
+    @Override
+    public PCB next() {
+        return ready.poll();
+    }
+
+    @Override
+    public int quantum(PCB process) {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean preempts(PCB running, PCB arrived) {
+        return preemptive && arrived.getRemaining() < running.getRemaining();
+    }
+
+    @Override
+    public void expired(PCB process) {
+        ready.add(process);
+    }
+
+    @Override
+    public PCB steal(int core) {
+        // Find the process that would run last
+        PCB last = null;
+
+        for (PCB process : ready) {
+            if (process.canRunOn(core) && (last == null || ready.comparator().compare(process, last) > 0)) {
+                last = process;
+            }
+        }
+
+        if (last != null) {
+            ready.remove(last);
+        }
+
+        return last;
+    }
+
+    @Override
+    public int size() {
+        return ready.size();
+    }
+}
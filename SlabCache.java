@@ -0,0 +1,163 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Keeps recently freed blocks of common sizes, so an allocation of the same size can
+ * reuse one in O(1) instead of searching, splitting and merging the free list.
+ *
+ * Each size class holds at most 'capacity' blocks; offering one more evicts the least
+ * recently freed block. Blocks left unused for more than 'maxIdle' cache operations
+ * are trimmed. Evicted and trimmed blocks are handed back to go to the free list.
+ */
+public class SlabCache {
+    // The size classes, and the index of each
+    private int[] sizes;
+    private HashMap<Integer, Integer> classes;
+    // The cached blocks of each class, most recently freed first
+    private ArrayDeque<Block>[] slabs;
+    // The operation count when each cached block was freed, matching slabs
+    private ArrayDeque<Long>[] freedAt;
+    // The number of allocations served, or not served, by each class
+    private long[] hits, misses;
+    // The most blocks cached per class
+    private int capacity;
+    // The most operations a block may stay cached without being used
+    private long maxIdle;
+    // The number of take/offer operations so far
+    private long ticks = 0;
+
+    /**
+     * Creates a slab cache for the given size classes
+     * @param sizes The allocation sizes to cache
+     * @param capacity The most blocks cached per size class
+     * @param maxIdle The most operations a block stays cached without being used
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SlabCache(int[] sizes, int capacity, long maxIdle) {
+        this.sizes = sizes.clone();
+        this.capacity = capacity;
+        this.maxIdle = maxIdle;
+
+        classes = new HashMap<>();
+        slabs = new ArrayDeque[sizes.length];
+        freedAt = new ArrayDeque[sizes.length];
+        hits = new long[sizes.length];
+        misses = new long[sizes.length];
+
+        for (int i=0; i<sizes.length; i++) {
+            classes.put(sizes[i], i);
+            slabs[i] = new ArrayDeque<>();
+            freedAt[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Take a cached block of exactly the given size
+     * @param size The allocation size
+     * @return The block, or null if none is cached
+     */
+    public synchronized Block take(int size) {
+        Integer index = classes.get(size);
+
+        // The size isn't cached
+        if (index == null) {
+            return null;
+        }
+
+        ticks++;
+
+        // Nothing of this size is cached
+        if (slabs[index].isEmpty()) {
+            misses[index]++;
+            return null;
+        }
+
+        hits[index]++;
+        freedAt[index].pollFirst();
+        return slabs[index].pollFirst();
+    }
+
+    /**
+     * Offer a freed block to the cache
+     * @param block The freed block
+     * @param released The list to add blocks going back to the free list
+     *                 (the offered block if it isn't cached, evicted and trimmed blocks)
+     */
+    public synchronized void offer(Block block, ArrayList<Block> released) {
+        Integer index = classes.get(block.size());
+
+        // The size isn't cached
+        if (index == null) {
+            released.add(block);
+            return;
+        }
+
+        ticks++;
+
+        // Cache the block as the most recently freed
+        slabs[index].addFirst(block);
+        freedAt[index].addFirst(ticks);
+
+        // Evict the least recently freed block once the class is full
+        if (slabs[index].size() > capacity) {
+            freedAt[index].pollLast();
+            released.add(slabs[index].pollLast());
+        }
+
+        // Trim every class of its idle blocks
+        trim(ticks - maxIdle, released);
+    }
+
+    /**
+     * Remove every cached block
+     * @param released The list to add the removed blocks to
+     */
+    public synchronized void clear(ArrayList<Block> released) {
+        trim(Long.MAX_VALUE, released);
+    }
+
+    /**
+     * Remove the cached blocks freed before an operation count
+     * @param before The operation count
+     * @param released The list to add the removed blocks to
+     */
+    private void trim(long before, ArrayList<Block> released) {
+        for (int i=0; i<sizes.length; i++) {
+            // The oldest blocks are at the end of each class
+            while (!freedAt[i].isEmpty() && freedAt[i].peekLast() < before) {
+                freedAt[i].pollLast();
+                released.add(slabs[i].pollLast());
+            }
+        }
+    }
+
+    /**
+     * Get the number of allocations served by a size class
+     * @param size The size class
+     * @return The hit count
+     */
+    public synchronized long getHits(int size) {
+        Integer index = classes.get(size);
+        return index == null ? 0 : hits[index];
+    }
+
+    /**
+     * Get the number of allocations of a size class that weren't cached
+     * @param size The size class
+     * @return The miss count
+     */
+    public synchronized long getMisses(int size) {
+        Integer index = classes.get(size);
+        return index == null ? 0 : misses[index];
+    }
+
+    /**
+     * Display the hits, misses and cached blocks of each size class
+     */
+    public synchronized void printStats() {
+        for (int i=0; i<sizes.length; i++) {
+            System.out.println("Size " + sizes[i] + ": " + hits[i] + " hits, " + misses[i] + " misses, " + slabs[i].size() + " cached");
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the memory and process managers to a binary file, and restores them from it.
+ *
+ * The file is a header (magic, version, body length, CRC-32 of the body) followed by the body:
+ *
+ *   byte    1 if the memory section follows
+ *   memory  size, arenas, each arena's free blocks, each processes held blocks, waiting requests
+ *   process clock, PID counter, free PIDs, scheduling settings, every PCB in state order
+ *
+ * Numbers are big-endian ints and longs, blocks are start and end pairs, and names are
+ * UTF-8 with an int length. Only blocks are stored, never the owner of each byte, so a
+ * restore takes time proportional to the number of blocks and processes.
+ *
+ * A snapshot is written through a large buffer to a temporary file, then moved over the
+ * old one, so a failed save never leaves a partial snapshot behind. It is read through a
+ * memory-mapped buffer, and the length and checksum are checked before anything is restored.
+ */
+public class Snapshot {
+    // "OSSN", and the format version
+    private static int MAGIC = 0x4F53534E;
+    private static int VERSION = 1;
+    // The header bytes: magic, version, body length and checksum
+    private static int HEADER = 24;
+    // The bytes written at a time
+    private static int CHUNK = 1 << 20;
+
+    // The file being written, the bytes not yet written, and the checksum of those written
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private CRC32 crc;
+    private long length = 0;
+
+    /**
+     * Creates a snapshot writing to a file
+     * @param channel The file, positioned after the header
+     */
+    private Snapshot(FileChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(CHUNK);
+        this.crc = new CRC32();
+    }
+
+    /**
+     * Creates a snapshot reading from a checked body
+     * @param body The body
+     */
+    private Snapshot(ByteBuffer body) {
+        this.buffer = body;
+    }
+
+    /**
+     * Save the memory and processes to a file
+     * @param path The file
+     * @param memoryMgr The memory allocator (only saved if it is a MemoryManager)
+     * @param processMgr The process manager
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void save(Path path, Allocator memoryMgr, ProcessManager processMgr) throws IOException, InterruptedException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Snapshot snapshot = new Snapshot(channel);
+                channel.position(HEADER);
+
+                boolean memory = memoryMgr instanceof MemoryManager;
+                snapshot.putByte(memory ? 1 : 0);
+
+                if (memory) {
+                    ((MemoryManager) memoryMgr).save(snapshot);
+                }
+                processMgr.save(snapshot);
+
+                snapshot.flush();
+
+                // The header is written last, once the body's length and checksum are known
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                header.putInt(MAGIC).putInt(VERSION).putLong(snapshot.length).putLong(snapshot.crc.getValue());
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, HEADER - header.remaining());
+                }
+
+                channel.force(false);
+            }
+
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException | InterruptedException | RuntimeException | Error e) {
+            // Don't leave a partly written snapshot behind
+            try {
+                Files.deleteIfExists(temporary);
+            }
+            catch (IOException deleting) {
+                e.addSuppressed(deleting);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Restore the memory and processes from a file, replacing their current state
+     * @param path The file
+     * @param memoryMgr The memory allocator (must be a MemoryManager of the same size, if memory was saved)
+     * @param processMgr The process manager
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void load(Path path, Allocator memoryMgr, ProcessManager processMgr) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Check the header
+            if (channel.size() < HEADER) {
+                throw new IOException("Not a snapshot");
+            }
+
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (file.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot");
+            }
+            if (file.getInt() != VERSION) {
+                throw new IOException("Unsupported snapshot version");
+            }
+
+            long length = file.getLong();
+            long checksum = file.getLong();
+
+            if (length != channel.size() - HEADER) {
+                throw new IOException("Snapshot is truncated");
+            }
+
+            // Check the body before restoring any of it
+            ByteBuffer body = file.slice();
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+
+            if (crc.getValue() != checksum) {
+                throw new IOException("Snapshot is corrupt");
+            }
+
+            Snapshot snapshot = new Snapshot(body);
+
+            if (snapshot.getByte() == 1) {
+                if (!(memoryMgr instanceof MemoryManager)) {
+                    throw new IOException("Snapshot needs the arena allocator");
+                }
+                ((MemoryManager) memoryMgr).restore(snapshot);
+            }
+            processMgr.restore(snapshot);
+        }
+    }
+
+    /**
+     * Make room in the buffer, writing it out if needed
+     * @param bytes The bytes about to be put
+     * @throws IOException
+     */
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Write out the buffered bytes
+     * @throws IOException
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+
+        crc.update(buffer.duplicate());
+        length += buffer.remaining();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    public void putByte(int value) throws IOException {
+        reserve(1);
+        buffer.put((byte) value);
+    }
+
+    public void putInt(int value) throws IOException {
+        reserve(4);
+        buffer.putInt(value);
+    }
+
+    public void putLong(long value) throws IOException {
+        reserve(8);
+        buffer.putLong(value);
+    }
+
+    public void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        putInt(bytes.length);
+
+        // Names longer than the buffer are written straight through
+        if (bytes.length > buffer.capacity()) {
+            flush();
+            ByteBuffer name = ByteBuffer.wrap(bytes);
+            crc.update(name.duplicate());
+            length += bytes.length;
+            while (name.hasRemaining()) {
+                channel.write(name);
+            }
+            return;
+        }
+
+        reserve(bytes.length);
+        buffer.put(bytes);
+    }
+
+    public int getByte() {
+        return buffer.get();
+    }
+
+    public int getInt() {
+        return buffer.getInt();
+    }
+
+    public long getLong() {
+        return buffer.getLong();
+    }
+
+    public String getString() {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
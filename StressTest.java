@@ -0,0 +1,195 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Allocates and frees memory from several threads at once, for each thread count, and
+ * checks no byte was given to two processes. Each thread has its own PIDs and remembers
+ * the bytes each was given; every 'check' operations the threads stop together and the
+ * layout is checked against a ReferenceModel built from what they remember, so a byte
+ * allocated twice, or lost, shows up as a process holding the wrong number of bytes.
+ *
+ * Options are key=value pairs, as Benchmark, i.e.
+ * "java StressTest threads=1,2,4,8 arenas=8 ops=400000 sizes=exp:64"
+ * The throughput doesn't count the time spent checking.
+ */
+public class StressTest {
+    // The options, with their defaults
+    private static Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("threads", "1,2,4,8");
+        DEFAULTS.put("heap", "1048576");
+        DEFAULTS.put("arenas", "4");
+        DEFAULTS.put("fit", "first_fit");
+        // Operations shared between the threads, allocation sizes (a WorkloadGenerator distribution),
+        // and PIDs per thread
+        DEFAULTS.put("ops", "200000");
+        DEFAULTS.put("sizes", "exp:256");
+        DEFAULTS.put("pids", "16");
+        // Operations per thread between checks
+        DEFAULTS.put("check", "5000");
+        DEFAULTS.put("seed", "1");
+    }
+
+    // The options in use
+    private static Map<String, String> options = new HashMap<>();
+
+    // The first problem found (null == none yet)
+    private static volatile String problem;
+
+    public static void main(String[] args) throws InterruptedException {
+        options.putAll(DEFAULTS);
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+
+            // Check the input
+            if (!DEFAULTS.containsKey(pair[0])) {
+                System.out.println("Unknown option: " + pair[0] + " (options: " + DEFAULTS.keySet() + ")");
+                return;
+            }
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+
+        // The managers' messages would be measured too
+        Log.setEnabled(false);
+
+        for (String threads : options.get("threads").split(",")) {
+            run(Integer.parseInt(threads));
+
+            if (problem != null) {
+                System.out.println("FAILED (seed " + options.get("seed") + ") " + problem);
+                System.exit(1);
+            }
+        }
+
+        System.out.println("No byte was allocated twice");
+    }
+
+    /**
+     * Run the operations split between threads, and display the throughput
+     * @param threads The number of threads
+     * @throws InterruptedException
+     */
+    private static void run(int threads) throws InterruptedException {
+        int heap = number("heap");
+        int pids = number("pids");
+        int check = Math.max(1, number("check"));
+        // Each thread does the same number of operations, a whole number of checks
+        int perThread = Math.max(check, number("ops") / threads / check * check);
+
+        MemoryManager memory = new MemoryManager(heap, MemoryManager.Fit.valueOf(options.get("fit").toUpperCase()),
+                MemoryManager.Layout.INTERVAL, number("arenas"));
+
+        // The bytes each PID was given, by PID, only changed by the thread owning it
+        long[] held = new long[threads * pids + 1];
+        long[] failures = new long[threads];
+        // The time spent checking (ns), not counted in the throughput
+        long[] checking = new long[1];
+
+        // Once every thread has stopped, check the layout
+        CyclicBarrier barrier = new CyclicBarrier(threads, () -> {
+            long start = System.nanoTime();
+
+            try {
+                ReferenceModel model = new ReferenceModel(heap);
+                for (int pid=1; pid<held.length; pid++) {
+                    if (held[pid] > 0) {
+                        model.allocate(pid, (int) held[pid]);
+                    }
+                }
+
+                String found = model.check(memory, true);
+                if (found != null && problem == null) {
+                    problem = threads + " threads: " + found;
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            checking[0] += System.nanoTime() - start;
+        });
+
+        Thread[] workers = new Thread[threads];
+        for (int t=0; t<threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> work(memory, thread, perThread, held, failures, barrier));
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start - checking[0];
+
+        long failed = 0;
+        for (long count : failures) {
+            failed += count;
+        }
+
+        System.out.println(String.format("%d threads: %.0f ops/s, %d failed allocations, fragmentation %.3f",
+                threads, (double) perThread * threads * 1e9 / Math.max(1, elapsed), failed, memory.getFragmentation()));
+    }
+
+    /**
+     * Allocate to, or free, a random PID of this thread, stopping for each check
+     * Half the operations free a PID holding memory, the rest allocate to it
+     * @param memory The memory manager
+     * @param thread The thread index
+     * @param ops The number of operations
+     * @param held The bytes each PID was given
+     * @param failures The failed allocations of each thread
+     * @param barrier Where the threads stop for each check
+     */
+    private static void work(MemoryManager memory, int thread, int ops, long[] held, long[] failures, CyclicBarrier barrier) {
+        int pids = number("pids");
+        int check = Math.max(1, number("check"));
+        String[] sizes = options.get("sizes").split(":");
+        Random random = new Random(number("seed") + thread);
+
+        try {
+            for (int i=0; i<ops && problem == null; i++) {
+                int pid = thread * pids + 1 + random.nextInt(pids);
+
+                if (held[pid] > 0 && random.nextBoolean()) {
+                    memory.free(pid);
+                    held[pid] = 0;
+                }
+                else {
+                    int size = WorkloadGenerator.sample(random, sizes);
+
+                    if (memory.allocate(pid, size)) {
+                        held[pid] += size;
+                    }
+                    else {
+                        failures[thread]++;
+                    }
+                }
+
+                if ((i + 1) % check == 0) {
+                    barrier.await();
+                }
+            }
+        }
+        catch (InterruptedException | BrokenBarrierException e) {
+            // Another thread failed, and already stopped the run
+            problem = (problem == null) ? "Thread " + thread + " stopped: " + e : problem;
+            barrier.reset();
+        }
+    }
+
+    /**
+     * Get a whole number option
+     * @param key The option
+     * @return The option's value
+     */
+    private static int number(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+}
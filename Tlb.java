@@ -0,0 +1,128 @@
+/**
+ * A small, fully associative translation lookaside buffer, caching the frame of
+ * recently used (PID, virtual page) pairs. The least recently used entry is replaced.
+ */
+public class Tlb {
+    // Each entry's key (PID << 32 | page), frame and last use
+    private long[] keys;
+    private int[] frames;
+    private long[] lastUse;
+    private boolean[] valid;
+    // The number of lookups so far, used to order entries by recency
+    private long clock = 0;
+    // The number of lookups found, or not found, in the buffer
+    private long hits = 0, misses = 0;
+
+    /**
+     * Creates a TLB with a fixed number of entries
+     * @param entries The number of entries
+     */
+    public Tlb(int entries) {
+        keys = new long[entries];
+        frames = new int[entries];
+        lastUse = new long[entries];
+        valid = new boolean[entries];
+    }
+
+    /**
+     * Combine a PID and virtual page into a single key
+     * @param pid The process ID
+     * @param page The virtual page number
+     * @return The key
+     */
+    private static long key(int pid, int page) {
+        return ((long) pid << 32) | (page & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Look up the frame of a virtual page
+     * @param pid The process ID
+     * @param page The virtual page number
+     * @return The frame index, or -1 on a miss
+     */
+    public int lookup(int pid, int page) {
+        long key = key(pid, page);
+        clock++;
+
+        for (int i=0; i<keys.length; i++) {
+            if (valid[i] && keys[i] == key) {
+                hits++;
+                lastUse[i] = clock;
+                return frames[i];
+            }
+        }
+
+        misses++;
+        return -1;
+    }
+
+    /**
+     * Add a translation, replacing an empty or the least recently used entry
+     * @param pid The process ID
+     * @param page The virtual page number
+     * @param frame The frame index
+     */
+    public void insert(int pid, int page, int frame) {
+        int victim = 0;
+
+        for (int i=0; i<keys.length; i++) {
+            // Use an empty entry
+            if (!valid[i]) {
+                victim = i;
+                break;
+            }
+            // Otherwise the least recently used
+            if (lastUse[i] < lastUse[victim]) {
+                victim = i;
+            }
+        }
+
+        keys[victim] = key(pid, page);
+        frames[victim] = frame;
+        lastUse[victim] = clock;
+        valid[victim] = true;
+    }
+
+    /**
+     * Remove every translation of a process
+     * @param pid The process ID
+     */
+    public void invalidate(int pid) {
+        for (int i=0; i<keys.length; i++) {
+            if (valid[i] && (int) (keys[i] >>> 32) == pid) {
+                valid[i] = false;
+            }
+        }
+    }
+
+    /**
+     * Remove the translation of a single page
+     * @param pid The process ID
+     * @param page The virtual page number
+     */
+    public void invalidate(int pid, int page) {
+        long key = key(pid, page);
+
+        for (int i=0; i<keys.length; i++) {
+            if (valid[i] && keys[i] == key) {
+                valid[i] = false;
+            }
+        }
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Get the fraction of lookups found in the buffer
+     * @return The hit ratio, from 0 up to 1
+     */
+    public double getHitRatio() {
+        return (hits + misses) == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,379 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Replays a trace of commands without stopping for input, one command per line:
+ *
+ *   create <name> [priority burst]
+ *   alloc <pid> <size>
+ *   free <pid>
+ *   terminate <pid>
+ *   schedule
+ *
+ * Blank lines and lines starting with '#' are skipped. The trace is read in large chunks
+ * and parsed straight from the bytes, so a line doesn't create any Strings (except a
+ * process name). A failed allocation is handled by the failure policy instead of asking.
+ * A line with a number too large for an int, or a word longer than MAX_WORD bytes, is
+ * counted as invalid rather than run.
+ */
+public class TraceReplay {
+    // The bytes read at a time
+    private static int CHUNK = 1 << 20;
+    // The longest command word, and process name
+    private static int MAX_WORD = 64;
+
+    // The command words
+    private static byte[] CREATE = "create".getBytes();
+    private static byte[] ALLOC = "alloc".getBytes();
+    private static byte[] FREE = "free".getBytes();
+    private static byte[] TERMINATE = "terminate".getBytes();
+    private static byte[] SCHEDULE = "schedule".getBytes();
+
+    private ProcessManager processMgr;
+    private Allocator memoryMgr;
+    private OnFailure onFailure;
+
+    // The trace being read, and the unread bytes of the current chunk
+    private ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    // The last word read
+    private byte[] word = new byte[MAX_WORD];
+    private int wordLength;
+    // The last byte read, that ended a word or number
+    private int last;
+    // Whether the current line has a number or word too long to read
+    private boolean malformed = false;
+
+    // The lines read, and the commands run of each kind
+    private long lines = 0, creates = 0, allocs = 0, frees = 0, terminates = 0, schedules = 0;
+    // The allocations that failed, and the lines that couldn't be parsed
+    private long failures = 0, errors = 0;
+
+    /**
+     * What to do when an allocation fails
+     */
+    public static enum OnFailure {
+        // Terminate the process, as answering 'y'
+        TERMINATE,
+        // Queue the request until memory is freed, where the allocator supports it
+        WAIT,
+        // Block the process if it holds no memory, as answering 'n'
+        BLOCK;
+    }
+
+    /**
+     * Creates a trace replayer
+     * @param processMgr The process manager
+     * @param memoryMgr The memory allocator
+     * @param onFailure What to do when an allocation fails
+     */
+    public TraceReplay(ProcessManager processMgr, Allocator memoryMgr, OnFailure onFailure) {
+        this.processMgr = processMgr;
+        this.memoryMgr = memoryMgr;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Run every command of a trace
+     * @param channel The trace
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void replay(ReadableByteChannel channel) throws IOException, InterruptedException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(CHUNK);
+        this.buffer.flip();
+
+        while (readWord()) {
+            lines++;
+
+            // A blank line, or a comment
+            if (wordLength == 0 || word[0] == '#') {
+                skipLine();
+                continue;
+            }
+
+            if (isWord(ALLOC)) {
+                int pid = readInt();
+                int size = readInt();
+
+                if (pid < 0 || size < 0 || malformed) {
+                    errors++;
+                }
+                else {
+                    allocate(pid, size);
+                }
+            }
+            else if (isWord(FREE)) {
+                int pid = readInt();
+
+                if (pid < 0 || malformed) {
+                    errors++;
+                }
+                else {
+                    memoryMgr.free(pid);
+                    frees++;
+                }
+            }
+            else if (isWord(TERMINATE)) {
+                int pid = readInt();
+
+                if (pid < 0 || malformed) {
+                    errors++;
+                }
+                else {
+                    processMgr.terminateProcess(pid);
+                    terminates++;
+                }
+            }
+            else if (isWord(CREATE)) {
+                create();
+            }
+            else if (isWord(SCHEDULE)) {
+                processMgr.schedule();
+                schedules++;
+            }
+            else {
+                errors++;
+            }
+
+            skipLine();
+        }
+    }
+
+    /**
+     * Allocate memory, applying the failure policy if there isn't enough
+     * @param pid The process ID
+     * @param size The allocation size
+     * @throws InterruptedException
+     */
+    private void allocate(int pid, int size) throws InterruptedException {
+        allocs++;
+
+        if (memoryMgr.allocate(pid, size)) {
+            processMgr.readyProcess(pid);
+            return;
+        }
+
+        failures++;
+
+        switch (onFailure) {
+            case TERMINATE:
+                processMgr.terminateProcess(pid);
+                break;
+            case WAIT:
+                if (memoryMgr instanceof MemoryManager) {
+                    // Blocked until the request is admitted, unless it fits now
+                    if (((MemoryManager) memoryMgr).allocateOrWait(pid, size)) {
+                        processMgr.readyProcess(pid);
+                    }
+                    else if (((MemoryManager) memoryMgr).isWaiting(pid)) {
+                        processMgr.blockProcess(pid);
+                    }
+                }
+                // Otherwise block, as nothing will admit the request
+                else {
+                    blockIfEmpty(pid);
+                }
+                break;
+            case BLOCK:
+                blockIfEmpty(pid);
+                break;
+        }
+    }
+
+    /**
+     * Block a process whose allocation failed, if it holds no memory to run with
+     * @param pid The process ID
+     */
+    private void blockIfEmpty(int pid) {
+        if (!memoryMgr.hasAllocation(pid)) {
+            processMgr.blockProcess(pid);
+        }
+    }
+
+    /**
+     * Create a process, with an optional priority and CPU time
+     * @throws IOException
+     */
+    private void create() throws IOException {
+        // The process name is missing
+        if (last == '\n' || last == -1 || !readWord() || wordLength == 0) {
+            errors++;
+            return;
+        }
+
+        int nameLength = wordLength;
+
+        // The priority and CPU time, if given
+        int priority = readInt();
+        int burst = priority < 0 ? -1 : readInt();
+
+        // The name or a number was too long, a priority was given without a CPU time,
+        // or the priority isn't a number
+        if (malformed || (priority >= 0 && burst < 0) || (priority < 0 && last != '\n' && last != -1)) {
+            errors++;
+            return;
+        }
+
+        // The process name is the only String made
+        String name = new String(word, 0, nameLength);
+
+        if (burst < 0) {
+            processMgr.createProcess(name);
+        }
+        else {
+            processMgr.createProcess(name, priority, burst);
+        }
+
+        creates++;
+    }
+
+    /**
+     * Get the next byte of the trace
+     * @return The byte, or -1 at the end of the trace
+     * @throws IOException
+     */
+    private int read() throws IOException {
+        // Read the next chunk
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+
+            int count = 0;
+            while (count == 0) {
+                count = channel.read(buffer);
+            }
+
+            buffer.flip();
+
+            // The end of the trace
+            if (count < 0) {
+                return -1;
+            }
+        }
+
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Read the next word of the line, skipping spaces before it
+     * @return False at the end of the trace; True, otherwise
+     * @throws IOException
+     */
+    private boolean readWord() throws IOException {
+        wordLength = 0;
+
+        // Skip spaces, but not past the end of the line
+        int next = read();
+        while (next == ' ' || next == '\t' || next == '\r') {
+            next = read();
+        }
+
+        // The end of the trace
+        if (next == -1) {
+            last = -1;
+            return false;
+        }
+
+        while (next != -1 && next != ' ' && next != '\t' && next != '\r' && next != '\n') {
+            // Words longer than a name make the line invalid
+            if (wordLength < MAX_WORD) {
+                word[wordLength++] = (byte) next;
+            }
+            else {
+                malformed = true;
+            }
+            next = read();
+        }
+
+        last = next;
+        return true;
+    }
+
+    /**
+     * Read the next whole number of the line
+     * @return The number, or -1 if the line has no more numbers
+     * @throws IOException
+     */
+    private int readInt() throws IOException {
+        // The line has ended
+        if (last == '\n' || last == -1) {
+            return -1;
+        }
+
+        // Skip spaces, but not past the end of the line
+        int next = read();
+        while (next == ' ' || next == '\t' || next == '\r') {
+            next = read();
+        }
+
+        // Not a number
+        if (next < '0' || next > '9') {
+            last = next;
+            return -1;
+        }
+
+        int value = 0;
+        while (next >= '0' && next <= '9') {
+            // Numbers too large for an int make the line invalid
+            if (value > (Integer.MAX_VALUE - (next - '0')) / 10) {
+                malformed = true;
+            }
+            else {
+                value = value * 10 + (next - '0');
+            }
+            next = read();
+        }
+
+        last = next;
+        return value;
+    }
+
+    /**
+     * Skip the rest of the current line, ready to read the next
+     * @throws IOException
+     */
+    private void skipLine() throws IOException {
+        while (last != '\n' && last != -1) {
+            last = read();
+        }
+
+        malformed = false;
+    }
+
+    /**
+     * Check if the last word read is a command word
+     * @param command The command word
+     * @return True if they match; False, otherwise
+     */
+    private boolean isWord(byte[] command) {
+        if (wordLength != command.length) {
+            return false;
+        }
+
+        for (int i=0; i<wordLength; i++) {
+            if (word[i] != command[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Display the commands run, the failed allocations, and the replay speed
+     * @param elapsedNanos The time the replay took (ns)
+     */
+    public void printSummary(long elapsedNanos) {
+        long commands = creates + allocs + frees + terminates + schedules;
+
+        System.out.println("Replayed " + lines + " lines in " + (elapsedNanos / 1000000) + " ms ("
+                + String.format("%.0f", commands * 1e9 / Math.max(1, elapsedNanos)) + " commands/s)");
+        System.out.println("create: " + creates + ", alloc: " + allocs + ", free: " + frees
+                + ", terminate: " + terminates + ", schedule: " + schedules);
+        System.out.println("Failed allocations: " + failures + " (" + onFailure.toString().toLowerCase() + ")");
+        System.out.println("Invalid lines: " + errors);
+        System.out.println("Processes left: " + processMgr.size());
+    }
+}
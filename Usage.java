@@ -0,0 +1,38 @@
+/**
+ * The memory held by a process: its total bytes and number of blocks.
+ */
+public class Usage {
+    private int bytes, blocks;
+
+    /**
+     * Records a processes memory usage
+     * @param bytes The number of bytes held
+     * @param blocks The number of blocks held
+     */
+    public Usage(int bytes, int blocks) {
+        this.bytes = bytes;
+        this.blocks = blocks;
+    }
+
+    public int getBytes() {
+        return this.bytes;
+    }
+
+    public int getBlocks() {
+        return this.blocks;
+    }
+
+    /**
+     * Combine two usages
+     * @param other The usage to add
+     * @return A new usage holding the sum of both
+     */
+    public Usage add(Usage other) {
+        return new Usage(this.bytes + other.bytes, this.blocks + other.blocks);
+    }
+
+    @Override
+    public String toString() {
+        return(bytes + " bytes in " + blocks + " blocks");
+    }
+}
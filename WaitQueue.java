@@ -0,0 +1,196 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Allocation requests waiting for memory, and the order they are admitted in.
+ *
+ * FIFO admits requests in the order they were made, so a large request holds back
+ * every request behind it. SMALLEST_FIRST admits the smallest request first, which
+ * admits the most requests but can starve a large one. AGING is smallest-first, until
+ * the oldest request has been passed over 'maxBypass' times; then it goes next.
+ *
+ * Requests are kept in order of arrival and of size, so each step is O(log n).
+ */
+public class WaitQueue {
+    // The waiting requests, in the order they were made
+    private TreeSet<AllocationRequest> byArrival = new TreeSet<>(Comparator.comparingLong(AllocationRequest::getSequence));
+    // The waiting requests, smallest first
+    private TreeSet<AllocationRequest> bySize = new TreeSet<>(
+            Comparator.comparingInt(AllocationRequest::getSize).thenComparingLong(AllocationRequest::getSequence));
+    // The waiting requests of each process
+    private HashMap<Integer, List<AllocationRequest>> byPid = new HashMap<>();
+    // The admission policy
+    private Policy policy;
+    // The number of times the oldest request may be passed over, with AGING
+    private int maxBypass;
+    // The number of times the oldest request has been passed over
+    private int bypassed = 0;
+    // The number of requests made so far
+    private long count = 0;
+
+    /**
+     * Admission policies
+     */
+    public static enum Policy {
+        FIFO,
+        SMALLEST_FIRST,
+        AGING;
+    }
+
+    public WaitQueue() {
+        this(Policy.FIFO, 8);
+    }
+
+    /**
+     * Creates an empty wait queue
+     * @param policy The admission policy
+     * @param maxBypass The number of times the oldest request may be passed over, with AGING
+     */
+    public WaitQueue(Policy policy, int maxBypass) {
+        this.policy = policy;
+        this.maxBypass = maxBypass;
+    }
+
+    public synchronized void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Add a request to wait for memory
+     * @param pid The process ID
+     * @param size The number of bytes requested
+     * @return The request
+     */
+    public synchronized AllocationRequest add(int pid, int size) {
+        AllocationRequest request = new AllocationRequest(pid, size, count++);
+
+        byArrival.add(request);
+        bySize.add(request);
+        byPid.computeIfAbsent(pid, key -> new ArrayList<>()).add(request);
+
+        return request;
+    }
+
+    /**
+     * Get the request that should be admitted next, under the admission policy
+     * @return The request, or null if nothing is waiting
+     */
+    public synchronized AllocationRequest peek() {
+        // Nothing is waiting
+        if (byArrival.isEmpty()) {
+            return null;
+        }
+
+        // The oldest request goes first under FIFO, or once it has waited long enough
+        if (policy == Policy.FIFO || (policy == Policy.AGING && bypassed >= maxBypass)) {
+            return byArrival.first();
+        }
+
+        return bySize.first();
+    }
+
+    /**
+     * Remove a request once it is admitted
+     * @param request The admitted request
+     */
+    public synchronized void admitted(AllocationRequest request) {
+        // Count each time a newer request is admitted ahead of the oldest
+        if (request == byArrival.first()) {
+            bypassed = 0;
+        }
+        else {
+            bypassed++;
+        }
+
+        remove(request);
+    }
+
+    /**
+     * Remove every request of a process, i.e. when it is terminated
+     * @param pid The process ID
+     * @return The removed requests
+     */
+    public synchronized List<AllocationRequest> cancel(int pid) {
+        List<AllocationRequest> requests = byPid.get(pid);
+
+        // The process isn't waiting
+        if (requests == null) {
+            return new ArrayList<>();
+        }
+
+        ArrayList<AllocationRequest> removed = new ArrayList<>(requests);
+
+        for (AllocationRequest request : removed) {
+            // The oldest request is leaving, so the next oldest starts again
+            if (request == byArrival.first()) {
+                bypassed = 0;
+            }
+
+            remove(request);
+        }
+
+        return removed;
+    }
+
+    /**
+     * Remove a request from every index
+     * @param request The request
+     */
+    private void remove(AllocationRequest request) {
+        byArrival.remove(request);
+        bySize.remove(request);
+
+        List<AllocationRequest> requests = byPid.get(request.getPid());
+        requests.remove(request);
+        if (requests.isEmpty()) {
+            byPid.remove(request.getPid());
+        }
+    }
+
+    /**
+     * Check if a process has a request waiting
+     * @param pid The process ID
+     * @return True if the process is waiting; False, otherwise
+     */
+    public synchronized boolean isWaiting(int pid) {
+        return byPid.containsKey(pid);
+    }
+
+    /**
+     * Get the number of waiting requests
+     * @return The request count
+     */
+    public synchronized int size() {
+        return byArrival.size();
+    }
+
+    /**
+     * Get every waiting request, oldest first
+     * @return A copy of the requests
+     */
+    public synchronized List<AllocationRequest> requests() {
+        return new ArrayList<>(byArrival);
+    }
+
+    /**
+     * Remove every waiting request
+     */
+    public synchronized void clear() {
+        byArrival.clear();
+        bySize.clear();
+        byPid.clear();
+        bypassed = 0;
+    }
+
+    /**
+     * Display the waiting requests, oldest first
+     */
+    public synchronized void print() {
+        for (AllocationRequest request : byArrival) {
+            System.out.println("Waiting: " + request);
+        }
+    }
+}
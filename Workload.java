@@ -0,0 +1,95 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A synthetic workload, run by each process thread for every time slice it is given.
+ * Each operation holds a random resource while allocating memory, so the threads of
+ * processes running on different cores contend on both the resource locks and the
+ * allocator. Once a process would hold more than its working set, it frees its memory
+ * and starts again.
+ */
+public class Workload {
+    // The allocator the processes use
+    private Allocator memory;
+    // The resources the processes lock, and how many there are
+    private Semaphore2 resources;
+    private int resourceCount;
+    // The operations per time slice, the most bytes per allocation, and the most bytes held
+    private int operations;
+    private int maxAllocation;
+    private int workingSet;
+    // The operations run, and the allocations that failed, across every process
+    private LongAdder run = new LongAdder();
+    private LongAdder failures = new LongAdder();
+
+    /**
+     * Creates a workload
+     * @param memory The allocator the processes use
+     * @param resources The number of lockable resources
+     * @param operations The operations per time slice
+     * @param maxAllocation The most bytes per allocation
+     * @param workingSet The most bytes a process holds before freeing them
+     */
+    public Workload(Allocator memory, int resources, int operations, int maxAllocation, int workingSet) {
+        // Check the input
+        if (resources < 1 || operations < 0 || maxAllocation < 1 || workingSet < maxAllocation) {
+            throw new IllegalArgumentException("Invalid workload");
+        }
+
+        this.memory = memory;
+        this.resources = new Semaphore2(resources, 1, true);
+        this.resourceCount = resources;
+        this.operations = operations;
+        this.maxAllocation = maxAllocation;
+        this.workingSet = workingSet;
+    }
+
+    /**
+     * Run one time slice of a process
+     * @param pid The process ID
+     * @param held The bytes the process held after its last slice
+     * @return The bytes the process holds now
+     * @throws InterruptedException
+     */
+    public int run(int pid, int held) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int i=0; i<operations; i++) {
+            int resource = random.nextInt(resourceCount);
+            int size = 1 + random.nextInt(maxAllocation);
+
+            // Acquire the resource
+            resources.waitSem(resource);
+
+            try {
+                // Start the working set over once it is full, or memory is
+                if (held + size > workingSet || !memory.allocate(pid, size)) {
+                    if (held + size <= workingSet) {
+                        failures.increment();
+                    }
+
+                    // The process keeps running, so this isn't a termination
+                    memory.release(pid);
+                    held = 0;
+                }
+                else {
+                    held += size;
+                }
+            }
+            finally {
+                // Release the resource
+                resources.signal(resource);
+            }
+        }
+
+        run.add(operations);
+        return held;
+    }
+
+    /**
+     * Display the operations run and the allocations that failed
+     */
+    public void printStats() {
+        Log.println("Workload: " + run.sum() + " operations, " + failures.sum() + " failed allocations");
+    }
+}
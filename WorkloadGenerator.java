@@ -0,0 +1,203 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Generates a seeded, random stream of process creations, allocations and frees.
+ * Each process is created, makes allocations while it lives, and frees all of its
+ * memory once its lifetime (a number of operations) runs out. The same seed and
+ * settings always give the same stream.
+ *
+ * PIDs are given out like ProcessManager does, reusing the oldest freed PID first,
+ * so a written trace replays with the same PIDs (frees are written as terminations).
+ *
+ * Sizes and lifetimes are drawn from a distribution, written as:
+ *
+ *   fixed:n                  always n
+ *   uniform:min:max          min to max, equally likely
+ *   exp:mean                 exponential, mostly small with a long tail
+ *   pow2:max                 a power of two, up to max
+ *   bimodal:small:large:pct  up to small, except pct% are between small and large
+ */
+public class WorkloadGenerator {
+    private Random random;
+    // The size and lifetime distributions
+    private String[] sizes;
+    private String[] lifetimes;
+    // The most processes alive at once, and the chance each operation creates one
+    private int maxLive;
+    private double createChance;
+
+    // The operations generated so far
+    private long step = 0;
+    // The PID given to the next process, once no PID is free, and the freed PIDs, oldest first
+    private int nextPid = 1;
+    private ArrayDeque<Integer> freePids = new ArrayDeque<>();
+    // The live processes, and where each is in the array (by PID)
+    private int[] live;
+    private int[] position;
+    private int liveCount = 0;
+    // When each live process dies: {step, pid}, soonest first
+    private PriorityQueue<long[]> deaths = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+
+    // The last operation
+    private Type type;
+    private int pid, size;
+
+    /**
+     * Kinds of operation
+     */
+    public static enum Type {
+        CREATE,
+        ALLOC,
+        FREE;
+    }
+
+    /**
+     * Creates a workload generator
+     * @param seed The random seed
+     * @param sizes The allocation size distribution, i.e. "exp:256"
+     * @param lifetimes The process lifetime distribution, in operations, i.e. "exp:2000"
+     * @param maxLive The most processes alive at once
+     * @param createChance The chance each operation creates a process, while there is room
+     */
+    public WorkloadGenerator(long seed, String sizes, String lifetimes, int maxLive, double createChance) {
+        // Check the input
+        if (maxLive < 1 || createChance < 0 || createChance > 1) {
+            throw new IllegalArgumentException("Invalid workload settings");
+        }
+
+        this.random = new Random(seed);
+        this.sizes = sizes.split(":");
+        this.lifetimes = lifetimes.split(":");
+        this.maxLive = maxLive;
+        this.createChance = createChance;
+        // PIDs never go past the most live processes, as freed PIDs are reused
+        this.live = new int[maxLive];
+        this.position = new int[maxLive + 2];
+
+        // Check the distributions
+        sample(random, this.sizes);
+        sample(random, this.lifetimes);
+    }
+
+    /**
+     * Draw a number from a distribution
+     * @param random The random numbers
+     * @param spec The distribution, split on ':', i.e. {"uniform", "1", "64"}
+     * @return The number, at least 1
+     */
+    public static int sample(Random random, String[] spec) {
+        try {
+            switch (spec[0]) {
+                case ("fixed"):
+                    return Math.max(1, Integer.parseInt(spec[1]));
+                case ("exp"):
+                    return 1 + (int) (-Math.log(1 - random.nextDouble()) * (Integer.parseInt(spec[1]) - 1));
+                case ("pow2"):
+                    int orders = 32 - Integer.numberOfLeadingZeros(Integer.parseInt(spec[1]));
+                    return 1 << random.nextInt(orders);
+                case ("bimodal"):
+                    int small = Integer.parseInt(spec[1]);
+                    int large = Integer.parseInt(spec[2]);
+                    if (random.nextInt(100) < Integer.parseInt(spec[3])) {
+                        return small + 1 + random.nextInt(large - small);
+                    }
+                    return 1 + random.nextInt(small);
+                case ("uniform"):
+                    int min = Integer.parseInt(spec[1]);
+                    return Math.max(1, min + random.nextInt(Integer.parseInt(spec[2]) - min + 1));
+                default:
+                    throw new IllegalArgumentException("Unknown distribution: " + String.join(":", spec));
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid distribution: " + String.join(":", spec));
+        }
+    }
+
+    /**
+     * Generate the next operation
+     * @return The kind of operation; its PID and size are then available
+     */
+    public Type next() {
+        step++;
+
+        // A process has lived out its lifetime
+        if (!deaths.isEmpty() && deaths.peek()[0] <= step) {
+            pid = (int) deaths.poll()[1];
+
+            // Swap the last live process into its place
+            int last = live[--liveCount];
+            live[position[pid]] = last;
+            position[last] = position[pid];
+
+            freePids.add(pid);
+            type = Type.FREE;
+            return type;
+        }
+
+        // Start a process, if there is room, or nothing else is alive
+        if (liveCount == 0 || (liveCount < maxLive && random.nextDouble() < createChance)) {
+            pid = freePids.isEmpty() ? nextPid++ : freePids.poll();
+
+            position[pid] = liveCount;
+            live[liveCount++] = pid;
+            deaths.add(new long[] {step + sample(random, lifetimes), pid});
+
+            type = Type.CREATE;
+            return type;
+        }
+
+        // A live process allocates more memory
+        pid = live[random.nextInt(liveCount)];
+        size = sample(random, sizes);
+        type = Type.ALLOC;
+        return type;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    /**
+     * Get the size of the last allocation
+     * @return The number of bytes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Write operations as a trace that TraceReplay can run, i.e. "java Main --batch=trace.txt"
+     * @param path The trace file
+     * @param operations The number of operations
+     * @throws IOException
+     */
+    public void writeTrace(Path path, long operations) throws IOException {
+        try (BufferedWriter trace = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (long i=0; i<operations; i++) {
+                switch (next()) {
+                    case CREATE:
+                        trace.write("create p" + pid + "\n");
+                        break;
+                    case ALLOC:
+                        trace.write("alloc " + pid + " " + size + "\n");
+                        break;
+                    case FREE:
+                        trace.write("terminate " + pid + "\n");
+                        break;
+                }
+            }
+        }
+    }
+}
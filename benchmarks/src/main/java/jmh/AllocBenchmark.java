@@ -0,0 +1,85 @@
+package jmh;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocate/free churn on a fragmented heap, as Benchmark's alloc suite: each operation
+ * frees a random process if it holds memory, and allocates to it otherwise, so the heap
+ * stays about half full and fragmented.
+ * To skip the parameters another engine ignores, i.e. "-p engine=BUDDY -p fit=FIRST_FIT -p arenas=1"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocBenchmark {
+    @Param({"MEMORY", "BUDDY", "PAGED"})
+    public String engine;
+
+    @Param({"65536", "1048576"})
+    public int heap;
+
+    // The placement strategy and arenas, used by the MEMORY engine only
+    @Param({"FIRST_FIT", "BEST_FIT"})
+    public String fit;
+
+    @Param({"1", "4"})
+    public int arenas;
+
+    @Param({"256"})
+    public int pids;
+
+    // The largest allocation; sizes are uniform from 1
+    @Param({"64"})
+    public int maxSize;
+
+    private Object memory;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        random = new SplittableRandom(1);
+
+        switch (engine) {
+            case "BUDDY":
+                memory = Engines.create("BuddyAllocator", new Class<?>[] {int.class}, heap);
+                break;
+            case "PAGED":
+                memory = Engines.create("PagedMemoryManager", new Class<?>[] {int.class, int.class}, heap, 64);
+                break;
+            default:
+                memory = Engines.create("MemoryManager",
+                        new Class<?>[] {int.class, Engines.find("MemoryManager$Fit"), Engines.find("MemoryManager$Layout"), int.class},
+                        heap, Engines.constant("MemoryManager$Fit", fit), Engines.constant("MemoryManager$Layout", "INTERVAL"), arenas);
+                break;
+        }
+    }
+
+    @Benchmark
+    public boolean churn() throws Throwable {
+        int pid = 1 + random.nextInt(pids);
+
+        if ((boolean) Engines.HAS_ALLOCATION.invokeExact(memory, pid)) {
+            Engines.FREE.invokeExact(memory, pid);
+            return false;
+        }
+
+        return (boolean) Engines.ALLOCATE.invokeExact(memory, pid, 1 + random.nextInt(maxSize));
+    }
+}
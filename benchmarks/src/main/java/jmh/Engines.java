@@ -0,0 +1,116 @@
+package jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Reaches the simulator's classes, which are in the default package.
+ *
+ * JMH won't generate benchmarks in the default package, and a named package can't import
+ * from it, so the benchmarks call the simulator through method handles. Each handle is
+ * a static final, which the JIT treats as a constant and inlines, so a call costs the
+ * same as a direct one once compiled.
+ */
+final class Engines {
+    // Allocator.allocate(pid, size) and Allocator.free(pid)
+    static final MethodHandle ALLOCATE = virtual("Allocator", "allocate", boolean.class, int.class, int.class);
+    static final MethodHandle FREE = virtual("Allocator", "free", void.class, int.class);
+    static final MethodHandle HAS_ALLOCATION = virtual("Allocator", "hasAllocation", boolean.class, int.class);
+    // Semaphore2.waitSem(number) and Semaphore2.signal(number)
+    static final MethodHandle WAIT_SEM = virtual("Semaphore2", "waitSem", void.class, int.class);
+    static final MethodHandle SIGNAL = virtual("Semaphore2", "signal", void.class, int.class);
+    // ProcessManager.createProcess(name, priority, burst, arrival) and ProcessManager.schedule()
+    static final MethodHandle CREATE_PROCESS = virtual("ProcessManager", "createProcess", find("PCB"),
+            String.class, int.class, int.class, long.class);
+    static final MethodHandle SCHEDULE = virtual("ProcessManager", "schedule", void.class);
+
+    static {
+        // The managers' messages would be measured too
+        try {
+            find("Log").getMethod("setEnabled", boolean.class).invoke(null, false);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Engines() {
+    }
+
+    /**
+     * Find a simulator class
+     * @param name The class name, i.e. "MemoryManager" or "MemoryManager$Fit"
+     * @return The class
+     */
+    static Class<?> find(String name) {
+        try {
+            return Class.forName(name);
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The simulator isn't on the classpath: " + name, e);
+        }
+    }
+
+    /**
+     * Get a handle to an instance method, taking its receiver as an Object
+     * @param owner The class name
+     * @param name The method name
+     * @param result The return type
+     * @param params The parameter types
+     * @return The handle, of type (Object, params...) result
+     */
+    private static MethodHandle virtual(String owner, String name, Class<?> result, Class<?>... params) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().findVirtual(find(owner), name, MethodType.methodType(result, params));
+            return handle.asType(handle.type().changeParameterType(0, Object.class).changeReturnType(
+                    result.isPrimitive() ? result : Object.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Get a constant of a simulator enum
+     * @param type The enum class name, i.e. "MemoryManager$Fit"
+     * @param constant The constant name, case-insensitive
+     * @return The constant
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object constant(String type, String constant) {
+        return Enum.valueOf((Class) find(type), constant.toUpperCase());
+    }
+
+    /**
+     * Create a simulator object
+     * @param type The class name
+     * @param params The constructor parameter types
+     * @param args The constructor arguments
+     * @return The object
+     */
+    static Object create(String type, Class<?>[] params, Object... args) {
+        try {
+            return find(type).getConstructor(params).newInstance(args);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Couldn't create " + type, e);
+        }
+    }
+
+    /**
+     * Call a simulator method, outside of what is measured
+     * @param target The object
+     * @param name The method name
+     * @param params The parameter types
+     * @param args The arguments
+     */
+    static void call(Object target, String name, Class<?>[] params, Object... args) {
+        try {
+            target.getClass().getMethod(name, params).invoke(target, args);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Couldn't call " + name, e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package jmh;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scheduling processes with random CPU times and arrivals on the simulated clock, as
+ * Benchmark's schedule suite. Each invocation schedules every process to completion,
+ * so the score is the time to schedule 'processes' processes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleBenchmark {
+    @Param({"ROUND_ROBIN", "PRIORITY", "SJF", "SRTF", "MLFQ"})
+    public String policy;
+
+    @Param({"10000"})
+    public int processes;
+
+    @Param({"1", "4"})
+    public int cores;
+
+    @Param({"50"})
+    public int quantum;
+
+    @Param({"500"})
+    public int burst;
+
+    private Object processMgr;
+
+    // A new process manager for each invocation, with its processes created, not measured
+    @Setup(Level.Invocation)
+    public void setup() throws Throwable {
+        SplittableRandom random = new SplittableRandom(1);
+        processMgr = Engines.create("ProcessManager", new Class<?>[0]);
+        Engines.call(processMgr, "setSimulated", new Class<?>[] {boolean.class}, true);
+        Engines.call(processMgr, "setPolicy", new Class<?>[] {Engines.find("ProcessManager$Policy"), int.class},
+                Engines.constant("ProcessManager$Policy", policy), quantum);
+        Engines.call(processMgr, "setCores", new Class<?>[] {int.class}, cores);
+
+        // Arrivals spread over about the time it takes to run them all
+        long span = (long) processes * burst / 2 / cores;
+        for (int i=0; i<processes; i++) {
+            // invokeExact needs the result taken as the handle's return type
+            Object process = Engines.CREATE_PROCESS.invokeExact(processMgr, "p", random.nextInt(5), 1 + random.nextInt(burst),
+                    (long) (random.nextDouble() * span));
+        }
+    }
+
+    @Benchmark
+    public void schedule() throws Throwable {
+        Engines.SCHEDULE.invokeExact(processMgr);
+    }
+}
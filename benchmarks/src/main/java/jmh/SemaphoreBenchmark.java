@@ -0,0 +1,75 @@
+package jmh;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Threads acquiring and releasing random locks, as Benchmark's semaphore suite, with the
+ * simple Semaphore2, the queued Semaphore2 (unfair and fair), and java.util.concurrent.Semaphore.
+ * Run with "-t 1,4,16" to compare thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class SemaphoreBenchmark {
+    @Param({"SIMPLE", "QUEUED", "QUEUED_FAIR", "JUC"})
+    public String lock;
+
+    @Param({"16"})
+    public int locks;
+
+    private Object semaphore;
+    private Semaphore[] standard;
+
+    @Setup
+    public void setup() {
+        switch (lock) {
+            case "SIMPLE":
+                semaphore = Engines.create("Semaphore2", new Class<?>[] {int.class}, locks);
+                break;
+            case "QUEUED":
+            case "QUEUED_FAIR":
+                semaphore = Engines.create("Semaphore2", new Class<?>[] {int.class, int.class, boolean.class},
+                        locks, 1, lock.equals("QUEUED_FAIR"));
+                break;
+            default:
+                standard = new Semaphore[locks];
+                for (int i=0; i<locks; i++) {
+                    standard[i] = new Semaphore(1);
+                }
+                break;
+        }
+    }
+
+    @Benchmark
+    public void acquireRelease() throws Throwable {
+        int number = ThreadLocalRandom.current().nextInt(locks);
+
+        if (standard != null) {
+            standard[number].acquire();
+            standard[number].release();
+            return;
+        }
+
+        Engines.WAIT_SEM.invokeExact(semaphore, number);
+        Engines.SIGNAL.invokeExact(semaphore, number);
+    }
+}